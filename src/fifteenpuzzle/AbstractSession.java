@@ -8,9 +8,7 @@ import java.awt.Dimension;
 import java.awt.Font;
 import java.awt.Image;
 import java.awt.event.ActionListener;
-import java.io.File;
 import java.lang.reflect.InvocationTargetException;
-import java.util.LinkedList;
 
 public abstract class AbstractSession implements ActionListener
 {
@@ -127,11 +125,10 @@ public abstract class AbstractSession implements ActionListener
 		border.setMaximumSize(border.getPreferredSize());
 		border.setLayout(null);
 
-		String borderPath = Settings.HOME_DIR + "\\" + Settings.STYLE.name + "\\Border.png";
-		if (new File(borderPath).exists())
+		Image img = AssetPreloader.getImage(Settings.getBorderPath(Settings.STYLE));
+		if (img != null)
 		{
-			// Locate and scale border icon
-			Image img = new ImageIcon(borderPath).getImage();
+			// Scale border icon
 			ImageIcon icon = new ImageIcon(img.getScaledInstance(borderWidth, borderHeight, java.awt.Image.SCALE_SMOOTH));
 			border.setIcon(icon);
 		}
@@ -199,16 +196,16 @@ public abstract class AbstractSession implements ActionListener
 			showWarnings = false;
 	}
 
+	/**
+	 * Tries to move a tile. The move is made straight away and the tile slides
+	 * once the tiles moved before it have stopped, but this method does not wait
+	 * for it.
+	 * 
+	 * @param m The direction in which to move
+	 */
 	public void sendMove(Move m)
 	{
-		Thread moveThread = new Thread(new Runnable()
-		{
-			public void run()
-			{
-				puzzle.move(m);
-			}
-		});
-		moveThread.start();
+		puzzle.move(m);
 	}
 
 	/**
@@ -218,33 +215,34 @@ public abstract class AbstractSession implements ActionListener
 	 * 
 	 * @param sequence
 	 */
-	public void sendScramble(LinkedList<Move> sequence)
+	public void sendScramble(MoveSequence sequence)
 	{
 		if (!puzzle.isScrambleComplete())
 			return;
 
-		SyncObject scrambleSync = new SyncObject();
-
+		// Wait for scramble animation to finish before proceeding
 		if (sequence.size() * Settings.SCRAMBLE_SPEED <= Settings.MAX_SCRAMBLE_TIME)
-			puzzle.applySequenceAnimated(sequence, scrambleSync);
+			puzzle.applySequenceAnimated(sequence).join();
 		else
-			puzzle.applyStateInstant(PuzzleScrambler.applySequence(puzzle.currentState(), sequence), scrambleSync);
+			puzzle.applySequenceInstant(sequence).join();
+	}
 
-		// Wait for scramble animation to finish before proceeding
-		synchronized (scrambleSync)
-		{
-			while (!puzzle.isScrambleComplete())
-			{
-				try
-				{
-					scrambleSync.wait();
-				}
-				catch (InterruptedException e)
-				{
-					break;
-				}
-			}
-		}
+	/**
+	 * Animates the moves from the given stream as they are produced, so the
+	 * animation can start before the whole sequence is known
+	 * 
+	 * This method includes a pause, so it must not be called directly from the EDT
+	 * 
+	 * @param stream The stream of moves to apply, which the producer must close
+	 *               once it is done
+	 */
+	public void sendScramble(MoveStream stream)
+	{
+		if (!puzzle.isScrambleComplete())
+			return;
+
+		// Wait for the animation to finish before proceeding
+		puzzle.applyStreamAnimated(stream).join();
 	}
 
 	/**
@@ -259,23 +257,7 @@ public abstract class AbstractSession implements ActionListener
 		if (!puzzle.isScrambleComplete())
 			return;
 
-		SyncObject scrambleSync = new SyncObject();
-		puzzle.applyStateInstant(pattern, scrambleSync);
-
-		synchronized (scrambleSync)
-		{
-			while (!puzzle.isScrambleComplete())
-			{
-				try
-				{
-					scrambleSync.wait();
-				}
-				catch (InterruptedException e)
-				{
-					e.printStackTrace();
-				}
-			}
-		}
+		puzzle.applyStateInstant(pattern).join();
 	}
 
 	public void quit()
@@ -0,0 +1,183 @@
+package fifteenpuzzle;
+
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+
+import javax.swing.Timer;
+
+/**
+ * Runs all the tile animations from a single Swing timer, so that animating a
+ * move does not need a thread of its own. Every Settings.FRAME_TIME the timer
+ * moves each sliding tile to where it should be at that time (following
+ * Settings.ANIMATION_EASING), on the EDT. The timer only runs while something
+ * is moving.
+ *
+ * Since the position of a tile depends only on the time that has passed, a
+ * slide always ends on the first frame after its duration, however many frames
+ * are late or skipped. Slides can also be scheduled to start when the previous
+ * one was meant to end (rather than when it actually ended), so a sequence of
+ * short slides keeps its pace even when several of them fall within one frame.
+ */
+public class AnimationEngine implements ActionListener
+{
+	private static AnimationEngine instance;
+
+	private Timer timer;
+	private ArrayList<Slide> slides;
+	private ArrayList<BoardCanvas> dirtyCanvases; // Canvases with slides that ended without a frame of their own
+
+	private AnimationEngine()
+	{
+		this.timer = new Timer(Settings.FRAME_TIME, this);
+		this.slides = new ArrayList<Slide>();
+		this.dirtyCanvases = new ArrayList<BoardCanvas>();
+	}
+
+	public static synchronized AnimationEngine getInstance()
+	{
+		if (instance == null)
+			instance = new AnimationEngine();
+		return instance;
+	}
+
+	/**
+	 * Slides the tile in the given cell of the canvas from where it is currently
+	 * drawn into its cell, starting now. This can be called from any thread.
+	 *
+	 * @param canvas   The canvas on which the tile is drawn
+	 * @param row      The row of the tile
+	 * @param col      The column of the tile
+	 * @param duration The time (in milliseconds) that the slide should take
+	 * @return A future that is completed (on the EDT, unless the slide takes no
+	 *         time) once the tile is in its cell
+	 */
+	public CompletableFuture<Void> slide(BoardCanvas canvas, int row, int col, int duration)
+	{
+		return slide(canvas, row, col, duration, System.nanoTime());
+	}
+
+	/**
+	 * Slides the tile in the given cell of the canvas from where it is currently
+	 * drawn into its cell, as if it had started moving at the given time. If the
+	 * slide should already be over, the tile is put in its cell straight away.
+	 * This can be called from any thread.
+	 *
+	 * @param canvas    The canvas on which the tile is drawn
+	 * @param row       The row of the tile
+	 * @param col       The column of the tile
+	 * @param duration  The time (in milliseconds) that the slide should take
+	 * @param startTime The time (from System.nanoTime()) at which the slide starts
+	 * @return A future that is completed (on the EDT, unless the slide is already
+	 *         over) once the tile is in its cell
+	 */
+	public CompletableFuture<Void> slide(BoardCanvas canvas, int row, int col, int duration, long startTime)
+	{
+		long endTime = startTime + duration * 1000000L;
+		if (endTime - System.nanoTime() <= 0)
+		{
+			// Repaint with the next frame, so that many slides ending at once are drawn together
+			canvas.setOffset(row, col, 0, 0);
+			synchronized (slides)
+			{
+				if (!dirtyCanvases.contains(canvas))
+					dirtyCanvases.add(canvas);
+				if (!timer.isRunning())
+					timer.start();
+			}
+			return CompletableFuture.completedFuture(null);
+		}
+
+		Slide slide = new Slide(canvas, row, col, startTime, endTime);
+		synchronized (slides)
+		{
+			slides.add(slide);
+			if (!timer.isRunning())
+				timer.start();
+		}
+		return slide.done;
+	}
+
+	/**
+	 * Moves every tile to where it should be now, repaints the areas they moved
+	 * through, and finishes the slides that are complete
+	 */
+	@Override
+	public void actionPerformed(ActionEvent e)
+	{
+		long now = System.nanoTime();
+		ArrayList<Slide> finished = new ArrayList<Slide>();
+		ArrayList<BoardCanvas> canvases;
+		synchronized (slides)
+		{
+			canvases = new ArrayList<BoardCanvas>(dirtyCanvases);
+			dirtyCanvases.clear();
+
+			for (Slide slide : slides)
+			{
+				if (slide.advance(now))
+					finished.add(slide);
+				if (!canvases.contains(slide.canvas))
+					canvases.add(slide.canvas);
+			}
+			slides.removeAll(finished);
+			if (slides.isEmpty())
+				timer.stop();
+		}
+
+		for (BoardCanvas canvas : canvases)
+			canvas.repaintDirty();
+
+		// Outside the lock, since completing a slide can start the next one
+		for (Slide slide : finished)
+			slide.done.complete(null);
+	}
+
+	/**
+	 * A tile sliding into its cell
+	 */
+	private static class Slide
+	{
+		private BoardCanvas canvas;
+		private int row;
+		private int col;
+		private int startX; // Offset of the tile from its cell when the slide started
+		private int startY;
+		private long startTime; // From System.nanoTime()
+		private long endTime;
+		private CompletableFuture<Void> done;
+
+		private Slide(BoardCanvas canvas, int row, int col, long startTime, long endTime)
+		{
+			this.canvas = canvas;
+			this.row = row;
+			this.col = col;
+			this.startX = canvas.getOffsetX(row, col);
+			this.startY = canvas.getOffsetY(row, col);
+			this.startTime = startTime;
+			this.endTime = endTime;
+			this.done = new CompletableFuture<Void>();
+		}
+
+		/**
+		 * Moves the tile to where it should be at the given time
+		 *
+		 * @param now The current time (from System.nanoTime())
+		 * @return TRUE if the tile has reached its cell
+		 */
+		private boolean advance(long now)
+		{
+			if (now - endTime >= 0)
+			{
+				canvas.setOffset(row, col, 0, 0);
+				return true;
+			}
+
+			double t = Math.max(now - startTime, 0) / (double) (endTime - startTime);
+			double remaining = 1 - Settings.ANIMATION_EASING.apply(t);
+			canvas.setOffset(row, col, (int) Math.round(startX * remaining), (int) Math.round(startY * remaining));
+			return false;
+		}
+	}
+}
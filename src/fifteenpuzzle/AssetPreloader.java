@@ -0,0 +1,116 @@
+package fifteenpuzzle;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Decodes the images used by the GUI (buttons, radio buttons, the border and
+ * the tile atlas of the current style) in the background at startup, on a few
+ * threads, so that they are ready by the time they are shown instead of being
+ * read one after the other on the EDT or the game thread. Each image is
+ * decoded once and kept as a future, so asking for an image that is still
+ * being decoded just waits for it.
+ */
+public class AssetPreloader
+{
+	private static final HashMap<String, CompletableFuture<BufferedImage>> images = new HashMap<String, CompletableFuture<BufferedImage>>();
+
+	private static ExecutorService pool;
+	private static CompletableFuture<Void> ready = CompletableFuture.completedFuture(null);
+
+	/**
+	 * Starts decoding the buttons, radio buttons, border and tiles of the current
+	 * style in the background
+	 *
+	 * @return A future that is completed once all of them have been decoded
+	 */
+	public static synchronized CompletableFuture<Void> preload()
+	{
+		ArrayList<CompletableFuture<?>> futures = new ArrayList<CompletableFuture<?>>();
+		for (String dir : new String[] { Settings.BUTTON_DIR, Settings.RADIO_BUTTON_DIR })
+		{
+			for (String name : AssetStore.list(dir))
+			{
+				if (name.endsWith(".png"))
+					futures.add(load(name));
+			}
+		}
+		futures.add(load(Settings.getBorderPath(Settings.STYLE)));
+
+		Appearance style = Settings.STYLE;
+		futures.add(CompletableFuture.runAsync(new Runnable()
+		{
+			public void run()
+			{
+				TileAtlas.forStyle(style);
+			}
+		}, getPool()));
+
+		ready = CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[futures.size()]));
+		return ready;
+	}
+
+	/**
+	 * @return A future that is completed once everything started by the last call
+	 *         to preload() has been decoded
+	 */
+	public static synchronized CompletableFuture<Void> getReady()
+	{
+		return ready;
+	}
+
+	/**
+	 * Starts decoding the image asset with the given name (see AssetStore), unless
+	 * it has already been started
+	 *
+	 * @param name The name of the image asset
+	 * @return A future that is completed with the image, or with NULL if the asset
+	 *         does not exist or cannot be read
+	 */
+	public static synchronized CompletableFuture<BufferedImage> load(String name)
+	{
+		CompletableFuture<BufferedImage> image = images.get(name);
+		if (image == null)
+		{
+			image = CompletableFuture.supplyAsync(() -> AssetStore.readImage(name), getPool());
+			images.put(name, image);
+		}
+		return image;
+	}
+
+	/**
+	 * Gets the image asset with the given name, waiting for it to be decoded if
+	 * needed
+	 *
+	 * @param name The name of the image asset
+	 * @return The image, or NULL if the asset does not exist or cannot be read
+	 */
+	public static BufferedImage getImage(String name)
+	{
+		return load(name).join();
+	}
+
+	private static ExecutorService getPool()
+	{
+		if (pool == null)
+		{
+			pool = Executors.newFixedThreadPool(Math.max(Settings.PRELOAD_THREADS, 1), new ThreadFactory()
+			{
+				private int numThreads = 0;
+
+				public Thread newThread(Runnable r)
+				{
+					Thread thread = new Thread(r, "Asset preloader #" + numThreads++);
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+		return pool;
+	}
+}
@@ -0,0 +1,242 @@
+package fifteenpuzzle;
+
+import java.awt.image.BufferedImage;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import javax.imageio.ImageIO;
+
+/**
+ * Finds the assets (images and tile atlases) by name, e.g. "Wood/Border.png",
+ * wherever they are, without copying them anywhere first. The assets are
+ * looked for in these places, each one overriding the ones before it:
+ *
+ * <ol>
+ * <li>The Assets directory on the classpath (e.g. packed in the program's
+ * JAR), listed by its index file</li>
+ * <li>An Assets.zip archive in the working directory</li>
+ * <li>An Assets directory in the working directory</li>
+ * <li>The user's own assets in Settings.ASSET_DIR</li>
+ * </ol>
+ *
+ * The places are searched once, the first time an asset is requested, and the
+ * name of every asset is kept in an index, so finding an asset afterwards does
+ * not touch the file system.
+ *
+ * The index file for the classpath is written with the index command.
+ *
+ * Usage: AssetStore index assetsDir
+ */
+public class AssetStore
+{
+	private static final String RESOURCE_DIR = "/Assets/";
+	private static final String ARCHIVE = "Assets.zip";
+	private static final String DIRECTORY = "Assets";
+
+	private static HashMap<String, URL> assets; // Where to read each asset from, by name
+	private static HashMap<String, Integer> layers; // Which of the places above each asset is read from (0 for the classpath), by name
+
+	public static void main(String[] args)
+	{
+		try
+		{
+			if (args.length == 2 && args[0].equals("index"))
+			{
+				File dir = new File(args[1]);
+				ArrayList<String> names = new ArrayList<String>();
+				listDirectory(dir, "", names);
+				names.remove(Settings.ASSET_INDEX);
+				names.sort(null);
+
+				try (BufferedWriter out = new BufferedWriter(new FileWriter(new File(dir, Settings.ASSET_INDEX))))
+				{
+					for (String name : names)
+						out.write(name + "\n");
+				}
+				System.out.println("Listed " + names.size() + " assets in " + new File(dir, Settings.ASSET_INDEX));
+			}
+			else
+				System.out.println("Usage: AssetStore index assetsDir");
+		}
+		catch (IOException e)
+		{
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * @param name The name of the asset (e.g. "Buttons/Start.png")
+	 * @return TRUE if the asset exists
+	 */
+	public static boolean exists(String name)
+	{
+		return getIndex().containsKey(name);
+	}
+
+	/**
+	 * Tells which place an asset is read from, so that assets that depend on each
+	 * other (e.g. a tile atlas and a tile's own image) can tell which one
+	 * overrides the other
+	 *
+	 * @param name The name of the asset (e.g. "Buttons/Start.png")
+	 * @return The position of the place in the list above (0 for the classpath),
+	 *         or -1 if the asset does not exist
+	 */
+	public static int getLayer(String name)
+	{
+		getIndex();
+		Integer layer = layers.get(name);
+		return layer == null ? -1 : layer;
+	}
+
+	/**
+	 * @param name The name of the asset (e.g. "Buttons/Start.png")
+	 * @return A stream to read the asset from, or NULL if it does not exist
+	 * @throws IOException If the asset cannot be opened
+	 */
+	public static InputStream open(String name) throws IOException
+	{
+		URL url = getIndex().get(name);
+		return url == null ? null : url.openStream();
+	}
+
+	/**
+	 * Reads an image asset
+	 *
+	 * @param name The name of the asset (e.g. "Buttons/Start.png")
+	 * @return The image, or NULL if the asset does not exist or cannot be read
+	 */
+	public static BufferedImage readImage(String name)
+	{
+		try (InputStream in = open(name))
+		{
+			return in == null ? null : ImageIO.read(in);
+		}
+		catch (IOException e)
+		{
+			e.printStackTrace();
+			return null;
+		}
+	}
+
+	/**
+	 * @param dir The name of a directory of assets (e.g. "Buttons")
+	 * @return The names of all the assets directly in the directory
+	 */
+	public static ArrayList<String> list(String dir)
+	{
+		String prefix = dir + "/";
+		ArrayList<String> names = new ArrayList<String>();
+		for (String name : getIndex().keySet())
+		{
+			if (name.startsWith(prefix) && name.indexOf('/', prefix.length()) == -1)
+				names.add(name);
+		}
+		names.sort(null);
+		return names;
+	}
+
+	/**
+	 * Searches all the places assets can be in, the first time it is called
+	 */
+	private static synchronized HashMap<String, URL> getIndex()
+	{
+		if (assets != null)
+			return assets;
+
+		assets = new HashMap<String, URL>();
+		layers = new HashMap<String, Integer>();
+		try
+		{
+			indexClasspath(0);
+			indexArchive(new File(System.getProperty("user.dir"), ARCHIVE), 1);
+			indexDirectory(new File(System.getProperty("user.dir"), DIRECTORY), 2);
+			indexDirectory(new File(Settings.ASSET_DIR), 3);
+		}
+		catch (IOException e)
+		{
+			e.printStackTrace();
+		}
+		return assets;
+	}
+
+	private static void put(String name, URL url, int layer)
+	{
+		assets.put(name, url);
+		layers.put(name, layer);
+	}
+
+	private static void indexClasspath(int layer) throws IOException
+	{
+		InputStream index = AssetStore.class.getResourceAsStream(RESOURCE_DIR + Settings.ASSET_INDEX);
+		if (index == null)
+			return;
+
+		try (BufferedReader in = new BufferedReader(new InputStreamReader(index, "UTF-8")))
+		{
+			String name;
+			while ((name = in.readLine()) != null)
+			{
+				URL url = AssetStore.class.getResource(RESOURCE_DIR + name);
+				if (!name.isEmpty() && url != null)
+					put(name, url, layer);
+			}
+		}
+	}
+
+	private static void indexArchive(File archive, int layer) throws IOException
+	{
+		if (!archive.isFile())
+			return;
+
+		String base = "jar:" + archive.toURI() + "!/";
+		try (ZipFile zip = new ZipFile(archive))
+		{
+			Enumeration<? extends ZipEntry> entries = zip.entries();
+			while (entries.hasMoreElements())
+			{
+				ZipEntry entry = entries.nextElement();
+				if (!entry.isDirectory())
+					put(entry.getName(), new URL(base + entry.getName()), layer);
+			}
+		}
+	}
+
+	private static void indexDirectory(File dir, int layer) throws IOException
+	{
+		ArrayList<String> names = new ArrayList<String>();
+		listDirectory(dir, "", names);
+		for (String name : names)
+			put(name, new File(dir, name).toURI().toURL(), layer);
+	}
+
+	/**
+	 * Adds the names (relative to the top directory, separated by "/") of all the
+	 * files in a directory and its subdirectories
+	 */
+	private static void listDirectory(File dir, String prefix, ArrayList<String> names)
+	{
+		File[] files = dir.listFiles();
+		if (files == null)
+			return;
+
+		for (File file : files)
+		{
+			if (file.isDirectory())
+				listDirectory(file, prefix + file.getName() + "/", names);
+			else
+				names.add(prefix + file.getName());
+		}
+	}
+}
@@ -0,0 +1,439 @@
+package fifteenpuzzle;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.VolatileImage;
+import java.util.ArrayList;
+
+import javax.swing.JComponent;
+import javax.swing.SwingUtilities;
+import javax.swing.UIManager;
+
+/**
+ * Draws the whole puzzle as a single component, from a 2-D int array of tile
+ * values rather than with one component per tile. Tiles that are sliding are
+ * drawn at an offset from the cell they are moving into. Only the cells that
+ * overlap the area being repainted are drawn, so moving a tile costs the same
+ * however big the board is.
+ *
+ * The methods that change the board can be called from any thread. setState()
+ * repaints the board itself; setOffset() only records the area the tile moved
+ * through, and repaintDirty() then repaints each of those areas (rather than
+ * the whole board, or one box around every tile that moved), so that
+ * AnimationEngine repaints once per frame. If Settings.SHOW_REPAINTS is set,
+ * the repainted areas are highlighted.
+ *
+ * If Settings.USE_BACK_BUFFER is set, the tiles that are not moving are drawn
+ * once into a VolatileImage (which can be kept in video memory), and only the
+ * cells that change are redrawn there. Each paint then copies the buffer and
+ * draws the moving tiles on top.
+ */
+public class BoardCanvas extends JComponent
+{
+	private static final long serialVersionUID = 1L;
+	private static final Color DEFAULT_DARK_WOOD = new Color(143, 76, 6);
+	private static final Color DEFAULT_LIGHT_WOOD = new Color(239, 210, 171);
+	private static final Color DEFAULT_DARK_METAL = Color.GRAY;
+	private static final Color DEFAULT_LIGHT_METAL = Color.LIGHT_GRAY;
+	private static final Font TILE_FONT = new Font("Dialog", Font.PLAIN, 32);
+	private static final Color REPAINT_HIGHLIGHT = new Color(255, 0, 0, 48);
+	private static final int MAX_BUFFER_ATTEMPTS = 3; // Times to try drawing the back buffer before giving up for one paint
+
+	private int numRows;
+	private int numCols;
+	private int tileSize;
+	private int[][] values; // The value of the tile drawn in each cell
+	private int[][] offsetX; // How far (in pixels) the tile in each cell is drawn from the cell
+	private int[][] offsetY;
+	private BufferedImage[] images; // The image of each tile, or NULL if it is drawn without an image
+	private boolean[] imageLoaded;
+	private ArrayList<Rectangle> dirtyAreas; // Areas that tiles have moved through since the last repaint
+	private VolatileImage buffer; // The background and the tiles that are not moving, or NULL if not created yet
+	private boolean bufferValid; // FALSE if the whole buffer must be redrawn
+	private boolean[][] staleCells; // Cells that have changed since they were drawn in the buffer
+
+	/**
+	 * Creates a board showing the solved state
+	 *
+	 * @param numRows    The number of rows in the puzzle
+	 * @param numCols    The number of columns in the puzzle
+	 * @param tileSize   The side length of each tile (in pixels)
+	 * @param background The colour of the board behind the tiles
+	 */
+	public BoardCanvas(int numRows, int numCols, int tileSize, Color background)
+	{
+		this.numRows = numRows;
+		this.numCols = numCols;
+		this.tileSize = tileSize;
+		this.values = PuzzleSolver.solvedState(numRows, numCols);
+		this.offsetX = new int[numRows][numCols];
+		this.offsetY = new int[numRows][numCols];
+		this.images = new BufferedImage[numRows * numCols];
+		this.imageLoaded = new boolean[numRows * numCols];
+		this.dirtyAreas = new ArrayList<Rectangle>();
+		this.staleCells = new boolean[numRows][numCols];
+		this.bufferValid = false;
+
+		setBackground(background);
+		setOpaque(true);
+	}
+
+	/**
+	 * Shows the given state, stopping any tiles that are sliding
+	 *
+	 * @param state A 2-D int array with the values of all tiles (and
+	 *              Puzzle.BLANK_TILE for the blank tile)
+	 */
+	public void setState(int[][] state)
+	{
+		synchronized (this)
+		{
+			for (int r = 0; r < numRows; r++)
+			{
+				System.arraycopy(state[r], 0, values[r], 0, numCols);
+				for (int c = 0; c < numCols; c++)
+				{
+					offsetX[r][c] = 0;
+					offsetY[r][c] = 0;
+				}
+			}
+			bufferValid = false;
+		}
+		repaint();
+	}
+
+	/**
+	 * Moves the tile in one cell into the (blank) cell next to it. The tile is
+	 * still drawn where it was until its offset is changed with setOffset().
+	 *
+	 * @param fromRow The row the tile is in
+	 * @param fromCol The column the tile is in
+	 * @param toRow   The row of the blank cell
+	 * @param toCol   The column of the blank cell
+	 */
+	public synchronized void moveTile(int fromRow, int fromCol, int toRow, int toCol)
+	{
+		values[toRow][toCol] = values[fromRow][fromCol];
+		values[fromRow][fromCol] = Puzzle.BLANK_TILE;
+		offsetX[toRow][toCol] = offsetX[fromRow][fromCol] + (fromCol - toCol) * tileSize;
+		offsetY[toRow][toCol] = offsetY[fromRow][fromCol] + (fromRow - toRow) * tileSize;
+		offsetX[fromRow][fromCol] = 0;
+		offsetY[fromRow][fromCol] = 0;
+		staleCells[fromRow][fromCol] = true;
+		staleCells[toRow][toCol] = true;
+	}
+
+	/**
+	 * Changes where the tile in a cell is drawn and marks the area it moves
+	 * through to be repainted by repaintDirty()
+	 *
+	 * @param row The row of the tile
+	 * @param col The column of the tile
+	 * @param dx  How far (in pixels) to the right of its cell to draw the tile
+	 * @param dy  How far (in pixels) below its cell to draw the tile
+	 */
+	public synchronized void setOffset(int row, int col, int dx, int dy)
+	{
+		Rectangle dirty = tileBounds(row, col);
+		boolean wasMoving = isMoving(row, col);
+		offsetX[row][col] = dx;
+		offsetY[row][col] = dy;
+		dirty.add(tileBounds(row, col));
+
+		// A tile that starts or stops moving leaves or joins the back buffer
+		if (isMoving(row, col) != wasMoving)
+			staleCells[row][col] = true;
+
+		// Merge with the areas it overlaps, so that no pixel is painted twice
+		for (int i = dirtyAreas.size() - 1; i >= 0; i--)
+		{
+			if (dirtyAreas.get(i).intersects(dirty))
+				dirty.add(dirtyAreas.remove(i));
+		}
+		dirtyAreas.add(dirty);
+	}
+
+	/**
+	 * Repaints the areas that tiles have moved through since the last call. On the
+	 * EDT, they are painted straight away (each on its own, so that the board
+	 * between them is left alone); from other threads, they are passed to
+	 * repaint().
+	 */
+	public void repaintDirty()
+	{
+		Rectangle[] areas;
+		synchronized (this)
+		{
+			if (dirtyAreas.isEmpty())
+				return;
+			areas = dirtyAreas.toArray(new Rectangle[dirtyAreas.size()]);
+			dirtyAreas.clear();
+		}
+
+		boolean onEDT = SwingUtilities.isEventDispatchThread();
+		for (Rectangle area : areas)
+		{
+			if (onEDT)
+				paintImmediately(area);
+			else
+				repaint(area);
+		}
+	}
+
+	/**
+	 * @return How far (in pixels) to the right of its cell the tile in the given
+	 *         cell is drawn
+	 */
+	public synchronized int getOffsetX(int row, int col)
+	{
+		return offsetX[row][col];
+	}
+
+	/**
+	 * @return How far (in pixels) below its cell the tile in the given cell is
+	 *         drawn
+	 */
+	public synchronized int getOffsetY(int row, int col)
+	{
+		return offsetY[row][col];
+	}
+
+	/**
+	 * @return The area covered by the tile in the given cell, where it is currently
+	 *         drawn
+	 */
+	private Rectangle tileBounds(int row, int col)
+	{
+		return new Rectangle(col * tileSize + offsetX[row][col], row * tileSize + offsetY[row][col], tileSize, tileSize);
+	}
+
+	@Override
+	protected void paintComponent(Graphics g)
+	{
+		Rectangle clip = g.getClipBounds();
+		if (clip == null)
+			clip = new Rectangle(0, 0, getWidth(), getHeight());
+
+		// Sliding tiles can be up to one cell away from their own cell
+		int firstRow = Math.max(clip.y / tileSize - 1, 0);
+		int lastRow = Math.min((clip.y + clip.height) / tileSize + 1, numRows - 1);
+		int firstCol = Math.max(clip.x / tileSize - 1, 0);
+		int lastCol = Math.min((clip.x + clip.width) / tileSize + 1, numCols - 1);
+
+		synchronized (this)
+		{
+			// Without a back buffer, draw the background and all the tiles; with one, only the moving tiles
+			boolean buffered = Settings.USE_BACK_BUFFER && paintBuffer(g);
+			if (!buffered)
+			{
+				g.setColor(getBackground());
+				g.fillRect(clip.x, clip.y, clip.width, clip.height);
+			}
+
+			for (int r = firstRow; r <= lastRow; r++)
+			{
+				for (int c = firstCol; c <= lastCol; c++)
+				{
+					if (values[r][c] == Puzzle.BLANK_TILE || (buffered && !isMoving(r, c)))
+						continue;
+
+					int x = c * tileSize + offsetX[r][c];
+					int y = r * tileSize + offsetY[r][c];
+					if (clip.intersects(x, y, tileSize, tileSize))
+						paintTile(g, values[r][c], x, y);
+				}
+			}
+		}
+
+		if (Settings.SHOW_REPAINTS)
+		{
+			g.setColor(REPAINT_HIGHLIGHT);
+			g.fillRect(clip.x, clip.y, clip.width, clip.height);
+			g.setColor(Color.RED);
+			g.drawRect(clip.x, clip.y, clip.width - 1, clip.height - 1);
+		}
+	}
+
+	/**
+	 * Draws the back buffer (the background and the tiles that are not moving),
+	 * first bringing it up to date. The buffer is created again if the size of the
+	 * board or the screen it is on changes, and redrawn if its contents are lost.
+	 *
+	 * @return FALSE if there is no back buffer (e.g. because the board is not on
+	 *         the screen yet), in which case nothing is drawn
+	 */
+	private boolean paintBuffer(Graphics g)
+	{
+		GraphicsConfiguration config = getGraphicsConfiguration();
+		if (config == null || getWidth() <= 0 || getHeight() <= 0)
+			return false;
+
+		for (int attempt = 0; attempt < MAX_BUFFER_ATTEMPTS; attempt++)
+		{
+			if (buffer == null || buffer.getWidth() != getWidth() || buffer.getHeight() != getHeight())
+			{
+				if (buffer != null)
+					buffer.flush();
+				buffer = config.createCompatibleVolatileImage(getWidth(), getHeight());
+				bufferValid = false;
+			}
+
+			int status = buffer.validate(config);
+			if (status == VolatileImage.IMAGE_INCOMPATIBLE)
+			{
+				buffer.flush();
+				buffer = null;
+				continue;
+			}
+			if (status == VolatileImage.IMAGE_RESTORED)
+				bufferValid = false;
+
+			updateBuffer();
+			g.drawImage(buffer, 0, 0, null);
+			if (!buffer.contentsLost())
+				return true;
+		}
+
+		// The buffer keeps getting lost; draw the whole board directly this time
+		return false;
+	}
+
+	/**
+	 * Redraws the cells of the back buffer that have changed since it was last
+	 * drawn, or all of it if it is not valid
+	 */
+	private void updateBuffer()
+	{
+		Graphics2D g = buffer.createGraphics();
+		try
+		{
+			for (int r = 0; r < numRows; r++)
+			{
+				for (int c = 0; c < numCols; c++)
+				{
+					if (bufferValid && !staleCells[r][c])
+						continue;
+
+					g.setColor(getBackground());
+					g.fillRect(c * tileSize, r * tileSize, tileSize, tileSize);
+					if (values[r][c] != Puzzle.BLANK_TILE && !isMoving(r, c))
+						paintTile(g, values[r][c], c * tileSize, r * tileSize);
+					staleCells[r][c] = false;
+				}
+			}
+
+			// Cover the strips to the right of and below the tiles, if any
+			if (!bufferValid)
+			{
+				g.setColor(getBackground());
+				g.fillRect(numCols * tileSize, 0, buffer.getWidth() - numCols * tileSize, buffer.getHeight());
+				g.fillRect(0, numRows * tileSize, buffer.getWidth(), buffer.getHeight() - numRows * tileSize);
+			}
+			bufferValid = true;
+		}
+		finally
+		{
+			g.dispose();
+		}
+	}
+
+	/**
+	 * @return TRUE if the tile in the given cell is drawn away from its cell (and
+	 *         is therefore not in the back buffer)
+	 */
+	private boolean isMoving(int row, int col)
+	{
+		return offsetX[row][col] != 0 || offsetY[row][col] != 0;
+	}
+
+	/**
+	 * Draws one tile with its image, or as a coloured square with its number if
+	 * there is no image for it
+	 */
+	private void paintTile(Graphics g, int value, int x, int y)
+	{
+		BufferedImage image = getImage(value);
+		if (image != null)
+		{
+			g.drawImage(image, x, y, null);
+			return;
+		}
+
+		boolean dark = isDark(value);
+		if (Settings.STYLE == Appearance.WOOD)
+			g.setColor(dark ? DEFAULT_DARK_WOOD : DEFAULT_LIGHT_WOOD);
+		else
+			g.setColor(dark ? DEFAULT_DARK_METAL : DEFAULT_LIGHT_METAL);
+		g.fillRect(x + 1, y + 1, tileSize - 2, tileSize - 2);
+
+		String text = Integer.toString(value);
+		g.setFont(TILE_FONT);
+		g.setColor(UIManager.getColor("Label.foreground"));
+		FontMetrics metrics = g.getFontMetrics();
+		g.drawString(text, x + (tileSize - metrics.stringWidth(text)) / 2, y + (tileSize - metrics.getHeight()) / 2 + metrics.getAscent());
+	}
+
+	/**
+	 * Gets the images of all the tiles in advance, so that reading and scaling them
+	 * does not hold up the first paint. This may take a while the first time a
+	 * style is used, so it should not be called from the EDT.
+	 */
+	public synchronized void loadImages()
+	{
+		for (int value = 1; value < numRows * numCols; value++)
+			getImage(value);
+	}
+
+	/**
+	 * Gets the image of a tile from TileImageCache the first time it is drawn
+	 *
+	 * @return The image, or NULL if the tile has no image
+	 */
+	private BufferedImage getImage(int value)
+	{
+		if (!imageLoaded[value])
+		{
+			images[value] = TileImageCache.get(Settings.STYLE, value, isDark(value), tileSize);
+			imageLoaded[value] = true;
+		}
+		return images[value];
+	}
+
+	/**
+	 * @return TRUE if the given tile is drawn with the dark shade (as given by
+	 *         Settings.TILE_PATTERN)
+	 */
+	private boolean isDark(int value)
+	{
+		int[] homeCell = PuzzleSolver.getHomeCell(value, numRows, numCols);
+		if (homeCell[0] == PuzzleSolver.NO_CELL)
+			return false;
+
+		switch (Settings.TILE_PATTERN)
+		{
+			case LIGHT:
+				return false;
+			case DARK:
+				return true;
+			case COLUMNS:
+				return homeCell[1] % 2 == 0;
+			case ROWS:
+				return homeCell[0] % 2 == 0;
+			case CHECKER:
+				return (homeCell[0] + homeCell[1]) % 2 == 0;
+			default:
+				return false;
+		}
+	}
+
+	public int getTileSize()
+	{
+		return tileSize;
+	}
+}
@@ -0,0 +1,233 @@
+package fifteenpuzzle;
+
+/**
+ * The effect of a sequence of moves on a puzzle, stored as a permutation of the
+ * cells together with where the blank starts and ends. Once a sequence has been
+ * compiled, applying it costs the same no matter how long the sequence is, and
+ * it can be composed with other compiled sequences, inverted or repeated
+ * (see power()) without going through the moves again.
+ *
+ * The effect of a sequence depends on where the blank starts, since moves that
+ * push the blank into the edge do nothing. A compiled sequence can therefore
+ * only be applied to states where the blank is in its starting cell.
+ */
+public class CompiledSequence
+{
+	private int numRows;
+	private int numCols;
+	private int[] source; // source[cell] = the cell that the tile now in cell came from
+	private int startBlank;
+	private int endBlank;
+
+	private CompiledSequence(int numRows, int numCols, int[] source, int startBlank, int endBlank)
+	{
+		this.numRows = numRows;
+		this.numCols = numCols;
+		this.source = source;
+		this.startBlank = startBlank;
+		this.endBlank = endBlank;
+	}
+
+	/**
+	 * @param numRows  The number of rows in the puzzle
+	 * @param numCols  The number of columns in the puzzle
+	 * @param blankRow The row of the blank
+	 * @param blankCol The column of the blank
+	 * @return The effect of an empty sequence with the blank in the given cell
+	 */
+	public static CompiledSequence identity(int numRows, int numCols, int blankRow, int blankCol)
+	{
+		int[] source = new int[numRows * numCols];
+		for (int i = 0; i < source.length; i++)
+			source[i] = i;
+		int blank = blankRow * numCols + blankCol;
+		return new CompiledSequence(numRows, numCols, source, blank, blank);
+	}
+
+	/**
+	 * Works out the effect of a sequence of moves when the blank starts in the
+	 * given cell. As in PuzzleScrambler.applySequence, moves that cannot be made
+	 * are skipped.
+	 *
+	 * @param sequence The moves
+	 * @param numRows  The number of rows in the puzzle
+	 * @param numCols  The number of columns in the puzzle
+	 * @param blankRow The row where the blank starts
+	 * @param blankCol The column where the blank starts
+	 * @return The compiled sequence
+	 */
+	public static CompiledSequence compile(MoveSequence sequence, int numRows, int numCols, int blankRow, int blankCol)
+	{
+		CompiledSequence out = identity(numRows, numCols, blankRow, blankCol);
+		int[] source = out.source;
+		int row = blankRow;
+		int col = blankCol;
+
+		for (Move m : sequence)
+		{
+			int newRow = row;
+			int newCol = col;
+			switch (m)
+			{
+				case LEFT:
+					newCol++;
+					break;
+				case RIGHT:
+					newCol--;
+					break;
+				case UP:
+					newRow++;
+					break;
+				case DOWN:
+					newRow--;
+					break;
+			}
+			if (newRow < 0 || newRow >= numRows || newCol < 0 || newCol >= numCols)
+				continue;
+
+			int blank = row * numCols + col;
+			int tile = newRow * numCols + newCol;
+			int temp = source[blank];
+			source[blank] = source[tile];
+			source[tile] = temp;
+			row = newRow;
+			col = newCol;
+		}
+
+		out.endBlank = row * numCols + col;
+		return out;
+	}
+
+	/**
+	 * @param next The sequence to do after this one, which must start with the
+	 *             blank where this one leaves it
+	 * @return The effect of doing this sequence and then the given one
+	 */
+	public CompiledSequence then(CompiledSequence next)
+	{
+		if (next.numRows != numRows || next.numCols != numCols)
+			throw new IllegalArgumentException("Sequences are for different puzzle sizes");
+		if (next.startBlank != endBlank)
+			throw new IllegalArgumentException("The second sequence does not start where the first one leaves the blank");
+
+		int[] combined = new int[source.length];
+		for (int i = 0; i < combined.length; i++)
+			combined[i] = source[next.source[i]];
+		return new CompiledSequence(numRows, numCols, combined, startBlank, next.endBlank);
+	}
+
+	/**
+	 * @return The effect of undoing this sequence, which starts with the blank
+	 *         where this one leaves it
+	 */
+	public CompiledSequence inverse()
+	{
+		int[] inverted = new int[source.length];
+		for (int i = 0; i < source.length; i++)
+			inverted[source[i]] = i;
+		return new CompiledSequence(numRows, numCols, inverted, endBlank, startBlank);
+	}
+
+	/**
+	 * Works out the effect of repeating this sequence the given number of times,
+	 * by repeated squaring. Repeating a sequence only makes sense if it brings the
+	 * blank back to where it started (unless it is done at most once).
+	 *
+	 * @param times The number of repetitions (negative to undo the sequence that
+	 *              many times)
+	 * @return The compiled sequence for all the repetitions
+	 */
+	public CompiledSequence power(long times)
+	{
+		// -Long.MIN_VALUE does not fit in a long, so take one repetition out first
+		if (times == Long.MIN_VALUE)
+			return inverse().power(Long.MAX_VALUE).then(inverse());
+		if (times < 0)
+			return inverse().power(-times);
+		if (times == 1)
+			return this;
+		if (times == 0)
+			return identity(numRows, numCols, startBlank / numCols, startBlank % numCols);
+		if (startBlank != endBlank)
+			throw new IllegalArgumentException("Only sequences that bring the blank back to its starting cell can be repeated");
+
+		CompiledSequence result = null;
+		CompiledSequence square = this;
+		while (true)
+		{
+			if ((times & 1) != 0)
+				result = result == null ? square : result.then(square);
+			times >>>= 1;
+			if (times == 0)
+				break;
+			square = square.then(square);
+		}
+		return result;
+	}
+
+	/**
+	 * Applies the sequence to a state given as a 1-D array in row-major order
+	 *
+	 * @param cells The tile values, which are replaced with the new ones
+	 * @param temp  An array of the same length to use as scratch space (or NULL)
+	 */
+	public void applyInPlace(int[] cells, int[] temp)
+	{
+		if (cells.length != source.length)
+			throw new IllegalArgumentException("State is not a " + numRows + "x" + numCols + " puzzle");
+		if (cells[startBlank] != Puzzle.BLANK_TILE)
+			throw new IllegalArgumentException("The blank is not where the sequence starts");
+
+		if (temp == null || temp.length != cells.length)
+			temp = new int[cells.length];
+		System.arraycopy(cells, 0, temp, 0, cells.length);
+		for (int i = 0; i < cells.length; i++)
+			cells[i] = temp[source[i]];
+	}
+
+	/**
+	 * @param state A 2-D int array with the tile values, with the blank in the
+	 *              starting cell of the sequence
+	 * @return A new 2-D int array with the tile values after the sequence
+	 */
+	public int[][] apply(int[][] state)
+	{
+		if (state.length != numRows || state[0].length != numCols)
+			throw new IllegalArgumentException("State is not a " + numRows + "x" + numCols + " puzzle");
+		if (state[startBlank / numCols][startBlank % numCols] != Puzzle.BLANK_TILE)
+			throw new IllegalArgumentException("The blank is not where the sequence starts");
+
+		int[][] out = new int[numRows][numCols];
+		for (int i = 0; i < source.length; i++)
+			out[i / numCols][i % numCols] = state[source[i] / numCols][source[i] % numCols];
+		return out;
+	}
+
+	public int getStartBlankRow()
+	{
+		return startBlank / numCols;
+	}
+
+	public int getStartBlankCol()
+	{
+		return startBlank % numCols;
+	}
+
+	/**
+	 * @return The number of rows by which the sequence moves the blank (positive
+	 *         means down)
+	 */
+	public int getBlankRowShift()
+	{
+		return endBlank / numCols - startBlank / numCols;
+	}
+
+	/**
+	 * @return The number of columns by which the sequence moves the blank
+	 *         (positive means right)
+	 */
+	public int getBlankColShift()
+	{
+		return endBlank % numCols - startBlank % numCols;
+	}
+}
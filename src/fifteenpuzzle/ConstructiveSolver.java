@@ -0,0 +1,372 @@
+package fifteenpuzzle;
+
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.function.Consumer;
+
+/**
+ * A fast solver for puzzles of any size that does not look for the shortest
+ * solution. The puzzle is solved in phases: the top row or the left column of
+ * the unsolved region is placed one tile at a time (whichever leaves the
+ * region closer to square), and once the region has at most
+ * MAX_FINAL_CELLS cells, it is solved optimally by PuzzleSolver.
+ *
+ * Each move is sent to the consumer as soon as it is found, so the first
+ * phases can be used (e.g. animated) while the later ones are still being
+ * worked out.
+ */
+public class ConstructiveSolver
+{
+	public static final int MAX_FINAL_CELLS = Settings.MAX_OPTIMAL_SOLVE_SIZE; // Largest region (rows * cols) that is solved optimally at the end, the same size that the solve feature solves optimally
+
+	private int numRows;
+	private int numCols;
+	private int[][] board;
+	private boolean[][] locked;
+	private int blankRow;
+	private int blankCol;
+	private int top;
+	private int left;
+	private Consumer<Move> out;
+
+	// Search buffers, reused between placements. A state has been seen in the current search if its stamp
+	// matches the search number, so the buffers never need to be cleared.
+	private int[] stamps;
+	private int[] prev;
+	private int[] queue;
+	private int searchNumber;
+
+	private ConstructiveSolver(int[][] values, Consumer<Move> out)
+	{
+		this.numRows = values.length;
+		this.numCols = values[0].length;
+		this.board = PuzzleScrambler.cloneArray(values);
+		this.locked = new boolean[numRows][numCols];
+		this.out = out;
+
+		int[] blankCell = PuzzleScrambler.getBlankCell(board);
+		blankRow = blankCell[0];
+		blankCol = blankCell[1];
+	}
+
+	/**
+	 * Solves the given puzzle, sending the moves to the consumer as they are
+	 * found.
+	 *
+	 * @param values A 2-D int array with the values of all tiles (and
+	 *               Puzzle.BLANK_TILE for the blank tile)
+	 * @param out    The consumer to which the moves are sent, in order
+	 * @return TRUE if the puzzle was solved and FALSE if it is not solvable
+	 */
+	public static boolean solve(int[][] values, Consumer<Move> out)
+	{
+		if (!PuzzleSolver.isSolvable(values))
+			return false;
+
+		new ConstructiveSolver(values, out).solve();
+		return true;
+	}
+
+	private void solve()
+	{
+		while ((numRows - top) * (numCols - left) > MAX_FINAL_CELLS)
+		{
+			if (numRows - top >= numCols - left)
+				solveTopRow();
+			else
+				solveLeftColumn();
+		}
+		solveFinalRegion();
+	}
+
+	/**
+	 * Places the tiles of the top row of the unsolved region
+	 */
+	private void solveTopRow()
+	{
+		int r = top;
+		for (int c = left; c < numCols - 2; c++)
+		{
+			placeTile(homeValue(r, c), r, c);
+			locked[r][c] = true;
+		}
+
+		// The last two tiles are placed together, since placing one first can leave the other stuck in the
+		// corner behind it
+		int c1 = numCols - 2;
+		int c2 = numCols - 1;
+		placePair(homeValue(r, c1), r, c1, homeValue(r, c2), r, c2, r + 2, c2);
+		locked[r][c1] = true;
+		locked[r][c2] = true;
+
+		top++;
+	}
+
+	/**
+	 * Places the tiles of the left column of the unsolved region
+	 */
+	private void solveLeftColumn()
+	{
+		int c = left;
+		for (int r = top; r < numRows - 2; r++)
+		{
+			placeTile(homeValue(r, c), r, c);
+			locked[r][c] = true;
+		}
+
+		// Same as for rows: the last two tiles are placed together
+		int r1 = numRows - 2;
+		int r2 = numRows - 1;
+		placePair(homeValue(r1, c), r1, c, homeValue(r2, c), r2, c, r2, c + 2);
+		locked[r1][c] = true;
+		locked[r2][c] = true;
+
+		left++;
+	}
+
+	/**
+	 * Solves the remaining region optimally by renumbering its tiles as a small
+	 * puzzle of its own
+	 */
+	private void solveFinalRegion()
+	{
+		int regionRows = numRows - top;
+		int regionCols = numCols - left;
+		int[][] region = new int[regionRows][regionCols];
+
+		for (int r = 0; r < regionRows; r++)
+		{
+			for (int c = 0; c < regionCols; c++)
+			{
+				int value = board[top + r][left + c];
+				if (value == Puzzle.BLANK_TILE)
+					region[r][c] = Puzzle.BLANK_TILE;
+				else
+				{
+					int[] homeCell = PuzzleSolver.getHomeCell(value, numRows, numCols);
+					region[r][c] = (homeCell[0] - top) * regionCols + (homeCell[1] - left) + 1;
+				}
+			}
+		}
+
+		for (Move m : PuzzleSolver.solve(region))
+			applyMove(m);
+	}
+
+	/**
+	 * Moves the given tile to the given cell without disturbing any locked cells
+	 */
+	private void placeTile(int value, int targetRow, int targetCol)
+	{
+		placeTiles(new int[] { value }, new int[] { targetRow * numCols + targetCol });
+	}
+
+	/**
+	 * Moves the last two tiles of a row or column to their cells. Searching for
+	 * both tiles at once from anywhere on the board is slow, so the first tile is
+	 * placed and the second one brought to a staging cell two cells away from its
+	 * target first. From there, the joint search only needs a few moves. (Staging
+	 * can fail if the second tile is stuck behind the first, in which case the
+	 * joint search simply starts from further away.)
+	 */
+	private void placePair(int valueA, int rowA, int colA, int valueB, int rowB, int colB, int stagingRow, int stagingCol)
+	{
+		placeTile(valueA, rowA, colA);
+		if (board[rowB][colB] != valueB)
+		{
+			locked[rowA][colA] = true;
+			tryPlaceTiles(new int[] { valueB }, new int[] { stagingRow * numCols + stagingCol });
+			locked[rowA][colA] = false;
+		}
+
+		placeTiles(new int[] { valueA, valueB }, new int[] { rowA * numCols + colA, rowB * numCols + colB });
+	}
+
+	/**
+	 * Moves the given tiles to the given cells (row * numCols + col) without
+	 * disturbing any locked cells. The search covers every combination of tile
+	 * and blank positions in the unlocked cells, so it must only be used for one
+	 * or two tiles at a time.
+	 */
+	private void placeTiles(int[] values, int[] targets)
+	{
+		if (!tryPlaceTiles(values, targets))
+			throw new IllegalStateException("Tiles " + Arrays.toString(values) + " cannot be moved to " + Arrays.toString(targets));
+	}
+
+	/**
+	 * Same as placeTiles(), but leaves the board unchanged if the tiles cannot
+	 * be placed
+	 * 
+	 * @return TRUE if the tiles were placed and FALSE otherwise
+	 */
+	private boolean tryPlaceTiles(int[] values, int[] targets)
+	{
+		int numCells = numRows * numCols;
+		int numTiles = values.length;
+
+		// States are numbered by the cells of the tiles followed by the cell of the blank, in base numCells
+		int start = 0;
+		for (int i = 0; i < numTiles; i++)
+			start = start * numCells + findTile(values[i]);
+		start = start * numCells + blankRow * numCols + blankCol;
+
+		int goalTiles = 0;
+		for (int i = 0; i < numTiles; i++)
+			goalTiles = goalTiles * numCells + targets[i];
+		if (start / numCells == goalTiles)
+			return true;
+
+		int numStates = (int) Math.pow(numCells, numTiles + 1);
+		if (stamps == null || stamps.length < numStates)
+		{
+			stamps = new int[numStates];
+			prev = new int[numStates];
+			queue = new int[numStates];
+			searchNumber = 0;
+		}
+		searchNumber++;
+		stamps[start] = searchNumber;
+		prev[start] = start;
+		int head = 0;
+		int tail = 0;
+		queue[tail++] = start;
+		int goal = -1;
+		int[] tiles = new int[numTiles];
+
+		while (head < tail && goal == -1)
+		{
+			int state = queue[head++];
+			int blank = state % numCells;
+			int rest = state / numCells;
+			for (int i = numTiles - 1; i >= 0; i--)
+			{
+				tiles[i] = rest % numCells;
+				rest /= numCells;
+			}
+
+			for (int neighbor : freeNeighbors(blank))
+			{
+				// Moving the blank into a tile's cell moves that tile into the blank's cell
+				int nextTiles = 0;
+				for (int i = 0; i < numTiles; i++)
+					nextTiles = nextTiles * numCells + (tiles[i] == neighbor ? blank : tiles[i]);
+				int nextState = nextTiles * numCells + neighbor;
+				if (stamps[nextState] == searchNumber)
+					continue;
+
+				stamps[nextState] = searchNumber;
+				prev[nextState] = state;
+				queue[tail++] = nextState;
+				if (nextTiles == goalTiles)
+				{
+					goal = nextState;
+					break;
+				}
+			}
+		}
+
+		if (goal == -1)
+			return false;
+
+		LinkedList<Integer> blankPath = new LinkedList<Integer>();
+		for (int state = goal; state != start; state = prev[state])
+			blankPath.addFirst(state % numCells);
+		followBlankPath(blankPath);
+		return true;
+	}
+
+	private int findTile(int value)
+	{
+		for (int r = 0; r < numRows; r++)
+		{
+			for (int c = 0; c < numCols; c++)
+			{
+				if (board[r][c] == value)
+					return r * numCols + c;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Applies the moves that take the blank through the given cells
+	 */
+	private void followBlankPath(LinkedList<Integer> blankPath)
+	{
+		for (int cell : blankPath)
+		{
+			int row = cell / numCols;
+			int col = cell % numCols;
+
+			if (col > blankCol)
+				applyMove(Move.LEFT);
+			else if (col < blankCol)
+				applyMove(Move.RIGHT);
+			else if (row > blankRow)
+				applyMove(Move.UP);
+			else
+				applyMove(Move.DOWN);
+		}
+	}
+
+	/**
+	 * Applies the given move to the board and sends it to the consumer
+	 */
+	private void applyMove(Move m)
+	{
+		int nextRow = blankRow;
+		int nextCol = blankCol;
+		switch (m)
+		{
+			case LEFT:
+				nextCol++;
+				break;
+			case RIGHT:
+				nextCol--;
+				break;
+			case UP:
+				nextRow++;
+				break;
+			case DOWN:
+				nextRow--;
+				break;
+		}
+
+		board[blankRow][blankCol] = board[nextRow][nextCol];
+		board[nextRow][nextCol] = Puzzle.BLANK_TILE;
+		blankRow = nextRow;
+		blankCol = nextCol;
+		out.accept(m);
+	}
+
+	/**
+	 * @return The unlocked cells next to the given cell
+	 */
+	private int[] freeNeighbors(int cell)
+	{
+		int row = cell / numCols;
+		int col = cell % numCols;
+		int[] candidates = new int[4];
+		int n = 0;
+
+		if (row > 0 && !locked[row - 1][col])
+			candidates[n++] = cell - numCols;
+		if (row < numRows - 1 && !locked[row + 1][col])
+			candidates[n++] = cell + numCols;
+		if (col > 0 && !locked[row][col - 1])
+			candidates[n++] = cell - 1;
+		if (col < numCols - 1 && !locked[row][col + 1])
+			candidates[n++] = cell + 1;
+
+		return Arrays.copyOf(candidates, n);
+	}
+
+	/**
+	 * @return The value of the tile that belongs in the given cell
+	 */
+	private int homeValue(int row, int col)
+	{
+		return row * numCols + col + 1;
+	}
+}
@@ -0,0 +1,740 @@
+package fifteenpuzzle;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Generates scrambles whose shortest solution has exactly a given number of
+ * moves, e.g. to practise 4x4 scrambles that are 50 moves from solved.
+ *
+ * For puzzles with at most MAX_TABLE_STATES states, the distance of every state
+ * is worked out once by a breadth-first search, and scrambles are drawn
+ * uniformly from the states at the requested distance. For larger puzzles,
+ * uniformly random states are drawn and rejected unless the target lies between
+ * a lower bound (the pattern database or Manhattan distance) and an upper bound
+ * (ConstructiveSolver); the remaining candidates are checked with an IDA*
+ * search on a pool of worker threads. Candidates whose search takes more than
+ * MAX_SEARCH_NODES nodes are skipped, so targets far above what the heuristic
+ * can handle (e.g. on puzzles without a pattern database) may find nothing.
+ *
+ * Usage: DifficultyScrambler rows cols length [--count n] [--threads t]
+ */
+public class DifficultyScrambler
+{
+	public static final long MAX_TABLE_STATES = 2_000_000; // Largest puzzle (number of states) for which a distance table is built
+	public static final long MAX_SEARCH_NODES = 100_000_000; // Largest number of nodes searched to check a single candidate
+	public static final long DEFAULT_MAX_CANDIDATES = 1_000_000; // Default number of candidates drawn before giving up
+
+	private static final int NOT_FOUND = -1;
+	private static final int TOO_LONG = -2;
+	private static final HashMap<String, DistanceTable> tables = new HashMap<String, DistanceTable>();
+	private static final HashMap<String, DifficultyScrambler> scramblers = new HashMap<String, DifficultyScrambler>();
+
+	private int numRows;
+	private int numCols;
+	private int numCells;
+	private int targetLength;
+	private int numThreads;
+	private long maxCandidates;
+	private int[][] neighbors;
+	private CompletableFuture<Void> ready; // Completed once the distance table or pattern database used by generate() has been built
+	private AtomicBoolean preparing;
+
+	// Statistics of the last call to generate()
+	private LongAdder candidates;
+	private LongAdder boundRejections;
+	private LongAdder searches;
+	private LongAdder searchRejections;
+	private LongAdder searchTimeouts;
+	private LongAdder searchNodes;
+	private long elapsedMillis;
+
+	/**
+	 * @param numRows      The number of rows in the puzzle
+	 * @param numCols      The number of columns in the puzzle
+	 * @param targetLength The length of the shortest solution of the scrambles
+	 * @param numThreads   The number of threads checking candidates
+	 */
+	public DifficultyScrambler(int numRows, int numCols, int targetLength, int numThreads)
+	{
+		this.numRows = numRows;
+		this.numCols = numCols;
+		this.numCells = numRows * numCols;
+		this.targetLength = targetLength;
+		this.numThreads = Math.max(numThreads, 1);
+		this.maxCandidates = DEFAULT_MAX_CANDIDATES;
+
+		neighbors = neighborTable(numRows, numCols);
+		ready = new CompletableFuture<Void>();
+		preparing = new AtomicBoolean(false);
+
+		resetStatistics();
+	}
+
+	/**
+	 * Gets the scrambler for puzzles with the given dimensions and target length,
+	 * creating it the first time it is requested. It uses one thread per
+	 * processor.
+	 *
+	 * @param numRows      The number of rows in the puzzle
+	 * @param numCols      The number of columns in the puzzle
+	 * @param targetLength The length of the shortest solution of the scrambles
+	 * @return The scrambler
+	 */
+	public static synchronized DifficultyScrambler forShape(int numRows, int numCols, int targetLength)
+	{
+		String key = numRows + "x" + numCols + ":" + targetLength;
+		DifficultyScrambler scrambler = scramblers.get(key);
+		if (scrambler == null)
+		{
+			scrambler = new DifficultyScrambler(numRows, numCols, targetLength, Runtime.getRuntime().availableProcessors());
+			scramblers.put(key, scrambler);
+		}
+		return scrambler;
+	}
+
+	public static void main(String[] args)
+	{
+		if (args.length < 3)
+		{
+			System.out.println("Usage: DifficultyScrambler rows cols length [--count n] [--threads t]");
+			return;
+		}
+
+		int numRows = Integer.parseInt(args[0]);
+		int numCols = Integer.parseInt(args[1]);
+		int targetLength = Integer.parseInt(args[2]);
+		int count = 1;
+		int numThreads = Runtime.getRuntime().availableProcessors();
+
+		for (int i = 3; i + 1 < args.length; i += 2)
+		{
+			switch (args[i])
+			{
+				case "--count":
+					count = Integer.parseInt(args[i + 1]);
+					break;
+				case "--threads":
+					numThreads = Integer.parseInt(args[i + 1]);
+					break;
+				default:
+					System.out.println("Unknown option " + args[i]);
+					return;
+			}
+		}
+
+		DifficultyScrambler scrambler = new DifficultyScrambler(numRows, numCols, targetLength, numThreads);
+		try
+		{
+			for (Scramble scramble : scrambler.generate(count))
+				System.out.println(PuzzleScrambler.stateToString(scramble.getState()));
+		}
+		catch (InterruptedException e)
+		{
+			e.printStackTrace();
+		}
+		System.out.println(scrambler.getReport());
+	}
+
+	/**
+	 * Sets the number of candidates that are drawn before giving up
+	 *
+	 * @param maxCandidates The number of candidates
+	 */
+	public void setMaxCandidates(long maxCandidates)
+	{
+		this.maxCandidates = maxCandidates;
+	}
+
+	/**
+	 * Starts building the distance table or pattern database that generate() will
+	 * need, on a background thread, unless it has already been started. Building
+	 * the pattern database for a 4x4 puzzle takes tens of seconds, so callers that
+	 * cannot wait (e.g. the GUI) can call this early and use other scrambles until
+	 * the future is completed.
+	 *
+	 * @return A future that is completed once generate() can run without building
+	 *         anything
+	 */
+	public CompletableFuture<Void> prepare()
+	{
+		if (preparing.compareAndSet(false, true))
+		{
+			Thread setupThread = new Thread(new Runnable()
+			{
+				public void run()
+				{
+					try
+					{
+						if (tableForShape(numRows, numCols) == null)
+							PatternDatabase.forShape(numRows, numCols);
+						ready.complete(null);
+					}
+					catch (RuntimeException | OutOfMemoryError e)
+					{
+						ready.completeExceptionally(e);
+					}
+				}
+			}, "Difficulty scrambler setup");
+			setupThread.setDaemon(true);
+			setupThread.setPriority(Thread.MIN_PRIORITY);
+			setupThread.start();
+		}
+		return ready;
+	}
+
+	/**
+	 * Generates scrambles whose shortest solution has exactly targetLength moves.
+	 * The sequence of each scramble is a shortest one.
+	 *
+	 * This method can take a long time, so it must not be called directly from the
+	 * EDT. Calls on the same scrambler run one at a time.
+	 *
+	 * @param count The number of scrambles to generate
+	 * @return The scrambles (fewer than count if there are not enough states at the
+	 *         target distance or if too many candidates were rejected)
+	 * @throws InterruptedException If the thread is interrupted while waiting for
+	 *                              the workers
+	 */
+	public synchronized ArrayList<Scramble> generate(int count) throws InterruptedException
+	{
+		resetStatistics();
+		long startTime = System.currentTimeMillis();
+		ArrayList<Scramble> out;
+
+		DistanceTable table = tableForShape(numRows, numCols);
+		if (table != null)
+		{
+			out = table.sample(new SplittableRandom(), targetLength, count);
+			candidates.add(out.size());
+		}
+		else
+			out = generateBySearch(count);
+
+		elapsedMillis = System.currentTimeMillis() - startTime;
+		return out;
+	}
+
+	/**
+	 * @return The throughput and rejection statistics of the last call to
+	 *         generate()
+	 */
+	public String getReport()
+	{
+		double seconds = Math.max(elapsedMillis, 1) / 1000.0;
+		return String.format("%d candidates in %.2f s (%.0f/s): %d rejected by bounds, %d searched (%.0f/s, %d nodes), %d rejected by search, %d timed out",
+				candidates.sum(), seconds, candidates.sum() / seconds, boundRejections.sum(), searches.sum(), searches.sum() / seconds,
+				searchNodes.sum(), searchRejections.sum(), searchTimeouts.sum());
+	}
+
+	private void resetStatistics()
+	{
+		candidates = new LongAdder();
+		boundRejections = new LongAdder();
+		searches = new LongAdder();
+		searchRejections = new LongAdder();
+		searchTimeouts = new LongAdder();
+		searchNodes = new LongAdder();
+		elapsedMillis = 0;
+	}
+
+	/**
+	 * Draws candidates on numThreads workers until enough of them have been
+	 * confirmed or maxCandidates have been drawn
+	 */
+	private ArrayList<Scramble> generateBySearch(int count) throws InterruptedException
+	{
+		List<Scramble> found = Collections.synchronizedList(new ArrayList<Scramble>());
+		AtomicBoolean done = new AtomicBoolean(false);
+		SplittableRandom seeds = new SplittableRandom();
+		ExecutorService pool = Executors.newFixedThreadPool(numThreads);
+
+		// Build the pattern database (if any) once, before the workers need it
+		PatternDatabase pdb = PatternDatabase.forShape(numRows, numCols);
+
+		for (int t = 0; t < numThreads; t++)
+		{
+			SplittableRandom rgen = seeds.split();
+			pool.execute(new Runnable()
+			{
+				public void run()
+				{
+					Verifier verifier = new Verifier(pdb);
+					int[] cells = new int[numCells];
+
+					while (!done.get())
+					{
+						candidates.increment();
+						if (candidates.sum() > maxCandidates)
+							break;
+
+						randomState(rgen, cells);
+						Scramble scramble = verifier.check(cells);
+						if (scramble != null)
+						{
+							found.add(scramble);
+							if (found.size() >= count)
+								done.set(true);
+						}
+					}
+				}
+			});
+		}
+
+		pool.shutdown();
+		try
+		{
+			while (!pool.awaitTermination(1, TimeUnit.SECONDS))
+				;
+		}
+		finally
+		{
+			done.set(true);
+			pool.shutdownNow();
+		}
+
+		ArrayList<Scramble> out = new ArrayList<Scramble>(found);
+		return new ArrayList<Scramble>(out.subList(0, Math.min(count, out.size())));
+	}
+
+	/**
+	 * Fills the given array with a uniformly random solvable state, with the blank
+	 * in any cell. All the cells (blank included) are shuffled while keeping track
+	 * of the parity of the permutation; if it does not match the parity of the
+	 * blank's distance from its home, two tiles next to each other in the first
+	 * row are swapped. Since those two tiles are chosen only based on where the
+	 * blank is, this pairs every unsolvable state with exactly one solvable state.
+	 */
+	private void randomState(SplittableRandom rgen, int[] cells)
+	{
+		for (int i = 0; i < numCells - 1; i++)
+			cells[i] = i + 1;
+		cells[numCells - 1] = Puzzle.BLANK_TILE;
+
+		boolean odd = false;
+		int blank = numCells - 1;
+		for (int i = numCells - 1; i > 0; i--)
+		{
+			int j = rgen.nextInt(i + 1);
+			if (j != i)
+			{
+				int temp = cells[i];
+				cells[i] = cells[j];
+				cells[j] = temp;
+				odd = !odd;
+				if (blank == i)
+					blank = j;
+				else if (blank == j)
+					blank = i;
+			}
+		}
+
+		if (odd != (blankDistance(blank) % 2 == 1))
+		{
+			int first = blank == 0 ? 1 : 0;
+			int second = blank <= 1 ? 2 : 1;
+			int temp = cells[first];
+			cells[first] = cells[second];
+			cells[second] = temp;
+		}
+	}
+
+	/**
+	 * @return The number of moves needed to move the blank from the given cell to
+	 *         its home in the bottom right
+	 */
+	private int blankDistance(int cell)
+	{
+		return (numRows - 1 - cell / numCols) + (numCols - 1 - cell % numCols);
+	}
+
+	/**
+	 * @return For each cell (row * numCols + col), the cells next to it
+	 */
+	private static int[][] neighborTable(int numRows, int numCols)
+	{
+		int[][] neighbors = new int[numRows * numCols][];
+
+		for (int cell = 0; cell < numRows * numCols; cell++)
+		{
+			int row = cell / numCols;
+			int col = cell % numCols;
+			ArrayList<Integer> list = new ArrayList<Integer>();
+
+			if (row > 0)
+				list.add(cell - numCols);
+			if (row < numRows - 1)
+				list.add(cell + numCols);
+			if (col > 0)
+				list.add(cell - 1);
+			if (col < numCols - 1)
+				list.add(cell + 1);
+
+			neighbors[cell] = new int[list.size()];
+			for (int i = 0; i < list.size(); i++)
+				neighbors[cell][i] = list.get(i);
+		}
+
+		return neighbors;
+	}
+
+	/**
+	 * @return The move that takes the blank from one cell to the one next to it
+	 */
+	private static Move blankMove(int from, int to)
+	{
+		if (to == from + 1)
+			return Move.LEFT;
+		else if (to == from - 1)
+			return Move.RIGHT;
+		else if (to > from)
+			return Move.UP;
+		else
+			return Move.DOWN;
+	}
+
+	/**
+	 * Turns a state and one of its shortest solutions into a scramble whose
+	 * sequence leads from the solved state to the state
+	 */
+	private static Scramble toScramble(int[] cells, int numRows, int numCols, MoveSequence solution)
+	{
+		int[][] state = new int[numRows][numCols];
+		for (int r = 0; r < numRows; r++)
+			System.arraycopy(cells, r * numCols, state[r], 0, numCols);
+		return new Scramble(state, PuzzleScrambler.reversedSequence(solution), solution.size());
+	}
+
+	/**
+	 * Gets the distance table for puzzles with the given dimensions, building it
+	 * the first time it is requested
+	 *
+	 * @return The distance table, or NULL if the puzzle has too many states
+	 */
+	private static DistanceTable tableForShape(int numRows, int numCols)
+	{
+		if (numRows * numCols > StateSpaceExplorer.MAX_CELLS)
+			return null;
+
+		synchronized (tables)
+		{
+			String key = numRows + "x" + numCols;
+			DistanceTable table = tables.get(key);
+			if (table == null)
+			{
+				StateSpaceExplorer ranker = new StateSpaceExplorer(numRows, numCols, Integer.MAX_VALUE, 1);
+				if (ranker.getNumStates() > MAX_TABLE_STATES)
+					return null;
+
+				table = new DistanceTable(numRows, numCols, ranker);
+				tables.put(key, table);
+			}
+			return table;
+		}
+	}
+
+	/**
+	 * The distance from solved of every state of a small puzzle, indexed by the
+	 * state's rank (see StateSpaceExplorer.rank), and the ranks of the states
+	 * grouped by distance so that a state at a given distance can be drawn
+	 * without searching for it
+	 */
+	private static class DistanceTable
+	{
+		private int numRows;
+		private int numCols;
+		private int numCells;
+		private int[][] neighbors;
+		private StateSpaceExplorer ranker;
+		private byte[] distances;
+		private ArrayList<Long> counts;
+		private int[] byDistance; // The ranks of all states, ordered by distance
+		private int[] firstAtDistance; // The position in byDistance of the first state at each distance
+
+		private DistanceTable(int numRows, int numCols, StateSpaceExplorer ranker)
+		{
+			this.numRows = numRows;
+			this.numCols = numCols;
+			this.numCells = numRows * numCols;
+			this.neighbors = neighborTable(numRows, numCols);
+			this.ranker = ranker;
+			int numStates = (int) ranker.getNumStates();
+			distances = new byte[numStates];
+			counts = new ArrayList<Long>();
+
+			// Breadth-first search, one layer at a time (-1 marks unvisited states)
+			Arrays.fill(distances, (byte) -1);
+			int[] cells = new int[numCells];
+			for (int i = 0; i < numCells - 1; i++)
+				cells[i] = i + 1;
+			distances[(int) ranker.rank(cells)] = 0;
+			counts.add(1L);
+
+			for (int depth = 0; counts.get(depth) > 0; depth++)
+			{
+				long next = 0;
+				for (int index = 0; index < numStates; index++)
+				{
+					if (distances[index] != depth)
+						continue;
+
+					ranker.unrank(index, cells);
+					int blank = indexOfBlank(cells);
+					for (int neighbor : neighbors[blank])
+					{
+						cells[blank] = cells[neighbor];
+						cells[neighbor] = Puzzle.BLANK_TILE;
+						int nextIndex = (int) ranker.rank(cells);
+						if (distances[nextIndex] == -1)
+						{
+							distances[nextIndex] = (byte) (depth + 1);
+							next++;
+						}
+						cells[neighbor] = cells[blank];
+						cells[blank] = Puzzle.BLANK_TILE;
+					}
+				}
+				counts.add(next);
+			}
+
+			// Counting sort of the ranks by distance
+			firstAtDistance = new int[counts.size()];
+			for (int d = 1; d < counts.size(); d++)
+				firstAtDistance[d] = firstAtDistance[d - 1] + (int) (long) counts.get(d - 1);
+			int[] nextAtDistance = firstAtDistance.clone();
+			byDistance = new int[numStates];
+			for (int index = 0; index < numStates; index++)
+			{
+				if (distances[index] >= 0)
+					byDistance[nextAtDistance[distances[index]]++] = index;
+			}
+		}
+
+		/**
+		 * Draws states uniformly (with replacement) from those at the given distance
+		 */
+		private ArrayList<Scramble> sample(SplittableRandom rgen, int distance, int count)
+		{
+			ArrayList<Scramble> out = new ArrayList<Scramble>();
+			if (distance < 0 || distance >= counts.size() || counts.get(distance) == 0)
+				return out;
+
+			int[] cells = new int[numCells];
+			for (int i = 0; i < count; i++)
+			{
+				int index = byDistance[firstAtDistance[distance] + rgen.nextInt((int) (long) counts.get(distance))];
+				ranker.unrank(index, cells);
+				int[] state = cells.clone();
+				out.add(toScramble(state, numRows, numCols, solutionFrom(cells, distance)));
+			}
+			return out;
+		}
+
+		/**
+		 * Finds a shortest solution by moving to a state one move closer to solved
+		 * at each step. The given array is left in the solved state.
+		 */
+		private MoveSequence solutionFrom(int[] cells, int distance)
+		{
+			MoveSequence solution = new MoveSequence();
+			int blank = indexOfBlank(cells);
+
+			for (int d = distance; d > 0; d--)
+			{
+				for (int neighbor : neighbors[blank])
+				{
+					cells[blank] = cells[neighbor];
+					cells[neighbor] = Puzzle.BLANK_TILE;
+					if (distances[(int) ranker.rank(cells)] == d - 1)
+					{
+						solution.add(blankMove(blank, neighbor));
+						blank = neighbor;
+						break;
+					}
+					cells[neighbor] = cells[blank];
+					cells[blank] = Puzzle.BLANK_TILE;
+				}
+			}
+
+			return solution;
+		}
+	}
+
+	private static int indexOfBlank(int[] cells)
+	{
+		int blank = 0;
+		while (cells[blank] != Puzzle.BLANK_TILE)
+			blank++;
+		return blank;
+	}
+
+	/**
+	 * Checks candidates for one worker thread, reusing its arrays between
+	 * searches
+	 */
+	private class Verifier
+	{
+		private PatternDatabase pdb;
+		private int[] cells;
+		private int[] positions;
+		private Move[] path;
+		private int blank;
+		private int manhattan;
+		private long nodes;
+
+		private Verifier(PatternDatabase pdb)
+		{
+			this.pdb = pdb;
+			this.cells = new int[numCells];
+			this.positions = new int[numCells];
+			this.path = new Move[targetLength + 1];
+		}
+
+		/**
+		 * @return The candidate as a scramble if its shortest solution has exactly
+		 *         targetLength moves, or NULL otherwise
+		 */
+		private Scramble check(int[] candidate)
+		{
+			System.arraycopy(candidate, 0, cells, 0, numCells);
+			manhattan = 0;
+			for (int cell = 0; cell < numCells; cell++)
+			{
+				positions[cells[cell]] = cell;
+				if (cells[cell] == Puzzle.BLANK_TILE)
+					blank = cell;
+				else
+					manhattan += distance(cells[cell], cell);
+			}
+
+			// Every move changes the parity of the blank's distance from its home
+			if ((targetLength - blankDistance(blank)) % 2 != 0 || heuristic() > targetLength)
+			{
+				boundRejections.increment();
+				return null;
+			}
+
+			// The constructive solution is an upper bound
+			int[] upperBound = { 0 };
+			int[][] state = new int[numRows][numCols];
+			for (int r = 0; r < numRows; r++)
+				System.arraycopy(cells, r * numCols, state[r], 0, numCols);
+			ConstructiveSolver.solve(state, m -> upperBound[0]++);
+			if (upperBound[0] < targetLength)
+			{
+				boundRejections.increment();
+				return null;
+			}
+
+			searches.increment();
+			int length = search();
+			searchNodes.add(nodes);
+			if (length == TOO_LONG)
+			{
+				searchTimeouts.increment();
+				return null;
+			}
+			if (length != targetLength)
+			{
+				searchRejections.increment();
+				return null;
+			}
+
+			MoveSequence solution = new MoveSequence();
+			for (int i = 0; i < length; i++)
+				solution.add(path[i]);
+			return toScramble(candidate, numRows, numCols, solution);
+		}
+
+		/**
+		 * Runs IDA* with bounds up to targetLength
+		 *
+		 * @return The length of the shortest solution, NOT_FOUND if it is longer
+		 *         than targetLength, or TOO_LONG if the search was cut off
+		 */
+		private int search()
+		{
+			nodes = 0;
+			// Solutions have the same parity as the blank's distance from its home
+			int bound = heuristic();
+			if ((bound - blankDistance(blank)) % 2 != 0)
+				bound++;
+
+			for (; bound <= targetLength; bound += 2)
+			{
+				int result = search(0, bound, -1);
+				if (result != NOT_FOUND)
+					return result;
+			}
+			return NOT_FOUND;
+		}
+
+		private int search(int g, int bound, int previousBlank)
+		{
+			if (++nodes > MAX_SEARCH_NODES)
+				return TOO_LONG;
+
+			int h = heuristic();
+			if (h == 0)
+				return g;
+			if (g + h > bound)
+				return NOT_FOUND;
+
+			int from = blank;
+			for (int neighbor : neighbors[from])
+			{
+				if (neighbor == previousBlank)
+					continue;
+
+				// Slide the tile into the blank
+				int tile = cells[neighbor];
+				manhattan += distance(tile, from) - distance(tile, neighbor);
+				cells[from] = tile;
+				positions[tile] = from;
+				cells[neighbor] = Puzzle.BLANK_TILE;
+				positions[Puzzle.BLANK_TILE] = neighbor;
+				blank = neighbor;
+				path[g] = blankMove(from, neighbor);
+
+				int result = search(g + 1, bound, from);
+
+				// Undo the move
+				blank = from;
+				positions[Puzzle.BLANK_TILE] = from;
+				cells[neighbor] = tile;
+				positions[tile] = neighbor;
+				cells[from] = Puzzle.BLANK_TILE;
+				manhattan -= distance(tile, from) - distance(tile, neighbor);
+
+				if (result != NOT_FOUND)
+					return result;
+			}
+
+			return NOT_FOUND;
+		}
+
+		private int heuristic()
+		{
+			return pdb != null ? pdb.estimate(positions) : manhattan;
+		}
+
+		/**
+		 * @return The Manhattan distance from the given cell to the tile's home
+		 */
+		private int distance(int tile, int cell)
+		{
+			int home = tile - 1;
+			return Math.abs(home / numCols - cell / numCols) + Math.abs(home % numCols - cell % numCols);
+		}
+	}
+}
@@ -0,0 +1,31 @@
+package fifteenpuzzle;
+
+/**
+ * How a sliding tile speeds up and slows down over the course of its animation
+ */
+public enum Easing
+{
+	LINEAR,
+	EASE_OUT,
+	EASE_IN_OUT;
+
+	/**
+	 * @param t The fraction of the animation time that has passed (from 0 to 1)
+	 * @return The fraction of the distance that the tile should have covered
+	 *         (from 0 to 1)
+	 */
+	public double apply(double t)
+	{
+		switch (this)
+		{
+			case LINEAR:
+				return t;
+			case EASE_OUT:
+				return 1 - (1 - t) * (1 - t);
+			case EASE_IN_OUT:
+				return t < 0.5 ? 2 * t * t : 1 - 2 * (1 - t) * (1 - t);
+			default:
+				return t;
+		}
+	}
+}
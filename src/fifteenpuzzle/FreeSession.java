@@ -10,7 +10,8 @@ import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.event.KeyEvent;
 import java.awt.event.KeyListener;
-import java.util.LinkedList;
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.CompletableFuture;
 import javax.swing.BorderFactory;
 import javax.swing.Box;
 import javax.swing.BoxLayout;
@@ -38,6 +39,7 @@ public class FreeSession extends AbstractSession implements KeyListener, ActionL
 	private int numRows;
 	private int numCols;
 	private Puzzle puzzle;
+	private int[][] stateBuffer; // Reused for copies of the puzzle state
 
 	/**
 	 * Sets up the session GUI using the superclass constructor and starts the game.
@@ -125,7 +127,7 @@ public class FreeSession extends AbstractSession implements KeyListener, ActionL
 
 		infoPane.revalidate();
 		solveResultText = new JTextArea();
-		if (numRows * numCols <= Settings.MAX_SCRAMBLE_SIZE)
+		if (numRows * numCols <= Settings.MAX_OPTIMAL_SOLVE_SIZE)
 			solveResultText.setText("The solution will be displayed here");
 		solveResultText.setEditable(false);
 		solveResultText.setFont(INFO_FONT);
@@ -155,11 +157,12 @@ public class FreeSession extends AbstractSession implements KeyListener, ActionL
 		String userScrambleText = userScramble.getText();
 		if (!userScrambleText.equals(""))
 		{
-			LinkedList<Move> scrambleSequence = PuzzleScrambler.stringToSequence(userScrambleText);
+			MoveSequence scrambleSequence = PuzzleScrambler.stringToSequence(userScrambleText);
 			// Valid user sequence
 			if (scrambleSequence != null)
 			{
-				sendScramble(scrambleSequence);
+				// Drop the moves that do nothing on the current board before cancelling moves, so the scramble ends where the typed one would
+				sendScramble(PuzzleScrambler.simplify(scrambleSequence, numRows, numCols, puzzle.getBlankRow(), puzzle.getBlankCol()));
 				userScramble.setText("");
 			}
 			else
@@ -179,12 +182,12 @@ public class FreeSession extends AbstractSession implements KeyListener, ActionL
 		// Otherwise, generate a scramble automatically
 		else
 		{
-			// Large puzzle: just use instant scramble
-			if (numRows * numCols > Settings.MAX_SCRAMBLE_SIZE)
-				sendScramble(PuzzleScrambler.generateScrambleState(numRows, numCols));
-			// Small enough puzzle: try animated scramble
+			// Animate the scramble if it can be done in time, otherwise apply it instantly
+			Scramble scramble = PuzzleScrambler.generateScramble(numRows, numCols, Settings.MAX_SCRAMBLE_TIME / Settings.SCRAMBLE_SPEED);
+			if (scramble.getSequence() != null)
+				sendScramble(scramble.getSequence());
 			else
-				sendScramble(PuzzleScrambler.generateScrambleSequence(numRows, numCols));
+				sendScramble(scramble.getState());
 		}
 	}
 
@@ -197,19 +200,72 @@ public class FreeSession extends AbstractSession implements KeyListener, ActionL
 	{
 		solveResultText.setText("Solving...");
 
-		if (numRows * numCols > Settings.MAX_SCRAMBLE_SIZE)
+		if (numRows * numCols > Settings.MAX_OPTIMAL_SOLVE_SIZE)
 		{
-			sendScramble(PuzzleSolver.solvedState(numRows, numCols));
-			solveResultText.setText("");
+			// Large puzzle: start animating the first phases of the solution while the rest is being found
+			// The solver keeps reading the state after this returns, so it gets its own copy
+			int[][] state = PuzzleScrambler.cloneArray(copyStateOnEDT());
+			MoveStream solution = new MoveStream();
+			CompletableFuture<Void> solved = new CompletableFuture<Void>();
+			Thread solverThread = new Thread(new Runnable()
+			{
+				public void run()
+				{
+					try
+					{
+						PuzzleSolver.solveStreaming(state, solution);
+						solved.complete(null);
+					}
+					catch (RuntimeException e)
+					{
+						e.printStackTrace();
+						solved.completeExceptionally(e);
+					}
+					finally
+					{
+						// Always close the stream, or the animation would wait for moves forever
+						solution.close();
+					}
+				}
+			});
+			solverThread.start();
+
+			sendScramble(solution);
+			solveResultText.setText(solved.isCompletedExceptionally() ? "The puzzle could not be solved" : "");
 		}
 		else
 		{
-			LinkedList<Move> solution = PuzzleSolver.solve(puzzle.currentState());
-			solveResultText.setText(PuzzleScrambler.sequenceToString(solution, 21));
+			MoveSequence solution = PuzzleSolver.solve(copyStateOnEDT());
+			solveResultText.setText(PuzzleScrambler.sequenceToString(solution, 21, true));
 			sendScramble(solution);
 		}
 	}
 
+	/**
+	 * Copies the puzzle state on the EDT, so that the copy is not torn by a move
+	 * being made at the same time
+	 * 
+	 * @return The copy (in stateBuffer)
+	 */
+	private int[][] copyStateOnEDT()
+	{
+		try
+		{
+			javax.swing.SwingUtilities.invokeAndWait(new Runnable()
+			{
+				public void run()
+				{
+					stateBuffer = puzzle.copyState(stateBuffer);
+				}
+			});
+		}
+		catch (InvocationTargetException | InterruptedException e)
+		{
+			e.printStackTrace();
+		}
+		return stateBuffer;
+	}
+
 	/**
 	 * Event handling for buttons
 	 */
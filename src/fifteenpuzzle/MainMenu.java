@@ -15,7 +15,6 @@ import javax.swing.BoxLayout;
 import javax.swing.ButtonGroup;
 import javax.swing.ImageIcon;
 import javax.swing.JButton;
-import javax.swing.JFileChooser;
 import javax.swing.JFrame;
 import javax.swing.JLabel;
 import javax.swing.JOptionPane;
@@ -66,22 +65,23 @@ public class MainMenu implements ActionListener
 			public void run()
 			{
 				initializeDirectory();
+				AssetPreloader.preload();
 				mm.createAndShowGUI();
 			}
 		});
 	}
 
 	/**
-	 * Checks if the AppData\Fifteen Puzzle\Assets directory exists. If not, asks
-	 * the user if they would like to create one and moves the Assets folder to
-	 * AppData\Fifteen Puzzle.
+	 * Checks if the AppData\Fifteen Puzzle directory exists. If not, asks the user
+	 * if they would like to create one. The assets are read from where they are
+	 * (see AssetStore), so they are not moved there.
 	 */
 	private static void initializeDirectory()
 	{
-		if (!new File(Settings.ASSET_DIR).exists())
+		if (!new File(Settings.HOME_DIR).exists())
 		{
 			String msg = "This app uses the " + Settings.HOME_DIR
-					+ "\nfolder to store solve results and GUI components. If you choose"
+					+ "\nfolder to store solve results. If you choose"
 					+ "\nnot to create the directory, your solves will not be saved";
 			String[] options = new String[] { "Create directory", "Don't create" };
 			int choice = JOptionPane.showOptionDialog(null, msg, "Directory creation",
@@ -92,56 +92,11 @@ public class MainMenu implements ActionListener
 			if (choice == JOptionPane.YES_OPTION)
 			{
 				// Make directory
-				boolean success = new File(Settings.HOME_DIR).mkdir();
+				boolean success = new File(Settings.HOME_DIR).mkdirs();
 				if (!success)
-				{
 					JOptionPane.showMessageDialog(null,
 							"An unexpected error occurred and the directory could not be created",
 							"Directory creation error", JOptionPane.ERROR_MESSAGE);
-					return;
-				}
-
-				// Move assets to AppData/Fifteen Puzzle directory
-				File currentDir = new File(System.getProperty("user.dir"));
-				for (File f : currentDir.listFiles())
-				{
-					if (isAssetsFolder(f))
-					{
-						success = f.renameTo(new File(Settings.ASSET_DIR));
-						if (!success)
-							JOptionPane.showMessageDialog(null,
-									"An unexpected error occurred and the Assets folder could not be moved",
-									"Error", JOptionPane.ERROR_MESSAGE);
-						return;
-					}
-				}
-
-				// Assets folder not found: ask user for location
-				msg = "The Assets folder was not found in " + currentDir.getAbsolutePath()
-						+ "\nWould you like to choose a folder to move to AppData\\Fifteen Puzzle?";
-				options = new String[] { "Choose folder", "Skip" };
-				choice = JOptionPane.showOptionDialog(null, msg,
-						"Assets folder not found", JOptionPane.YES_NO_OPTION,
-						JOptionPane.QUESTION_MESSAGE, null, options, options[0]);
-				if (choice == JOptionPane.YES_OPTION)
-				{
-					JFileChooser fc = new JFileChooser();
-					choice = fc.showDialog(null, "Use as Assets");
-					File assetsFolder = fc.getSelectedFile();
-					if (choice == JFileChooser.APPROVE_OPTION && assetsFolder.exists())
-					{
-						success = assetsFolder.renameTo(new File(Settings.ASSET_DIR));
-						if (!success)
-							JOptionPane.showMessageDialog(null,
-									"An unexpected error occurred and the Assets folder could not be moved",
-									"Error", JOptionPane.ERROR_MESSAGE);
-						return;
-					}
-					else
-						return;
-				}
-				else
-					return;
 			}
 			// User chooses NOT to create directory
 			else
@@ -149,15 +104,11 @@ public class MainMenu implements ActionListener
 		}
 	}
 
-	private static boolean isAssetsFolder(File f)
-	{
-		return f.getName().equals("Assets");
-	}
-
 	/**
-	 * Draws and displays the main menu GUI
-	 * 
-	 * TODO Speed up startup?
+	 * Draws and displays the main menu GUI. The images should have been started
+	 * by AssetPreloader.preload(), so that only the buttons need to be ready
+	 * before the menu is shown; the border and tiles keep loading in the
+	 * background while it is showing.
 	 */
 	private void createAndShowGUI()
 	{
@@ -302,25 +253,23 @@ public class MainMenu implements ActionListener
 			ActionListener listener, Font backupFont)
 	{
 		JButton button = new JButton();
-		String iconPath = Settings.BUTTON_DIR + "\\" + name;
-		if (new File(iconPath + ".png").exists())
+		String iconPath = Settings.BUTTON_DIR + "/" + name;
+		Image icon = AssetPreloader.getImage(iconPath + ".png");
+		if (icon != null)
 		{
-			Image img = new ImageIcon(iconPath + ".png").getImage()
-					.getScaledInstance(width, height, Image.SCALE_SMOOTH);
+			Image img = icon.getScaledInstance(width, height, Image.SCALE_SMOOTH);
 			button.setIcon(new ImageIcon(img));
 
-			String rolloverIconPath = iconPath + "_Rollover.png";
-			if (new File(rolloverIconPath).exists())
+			Image rolloverIcon = AssetPreloader.getImage(iconPath + "_Rollover.png");
+			if (rolloverIcon != null)
 			{
-				Image rolloverImg = new ImageIcon(rolloverIconPath).getImage()
-						.getScaledInstance(width, height, Image.SCALE_SMOOTH);
+				Image rolloverImg = rolloverIcon.getScaledInstance(width, height, Image.SCALE_SMOOTH);
 				button.setRolloverIcon(new ImageIcon(rolloverImg));
 
-				String pressedIconPath = iconPath + "_Pressed.png";
-				if (new File(pressedIconPath).exists())
+				Image pressedIcon = AssetPreloader.getImage(iconPath + "_Pressed.png");
+				if (pressedIcon != null)
 				{
-					Image pressedImg = new ImageIcon(pressedIconPath).getImage()
-							.getScaledInstance(width, height, Image.SCALE_SMOOTH);
+					Image pressedImg = pressedIcon.getScaledInstance(width, height, Image.SCALE_SMOOTH);
 					button.setPressedIcon(new ImageIcon(pressedImg));
 				}
 			}
@@ -350,16 +299,16 @@ public class MainMenu implements ActionListener
 		JRadioButton button = new JRadioButton();
 
 		String notSelectedPath =
-				Settings.RADIO_BUTTON_DIR + "\\" + name + "_NotSelected.png";
-		String selectedPath = Settings.RADIO_BUTTON_DIR + "\\" + name + "_Selected.png";
-		if (new File(notSelectedPath).exists() && new File(selectedPath).exists())
+				Settings.RADIO_BUTTON_DIR + "/" + name + "_NotSelected.png";
+		String selectedPath = Settings.RADIO_BUTTON_DIR + "/" + name + "_Selected.png";
+		Image notSelectedIcon = AssetPreloader.getImage(notSelectedPath);
+		Image selectedIcon = AssetPreloader.getImage(selectedPath);
+		if (notSelectedIcon != null && selectedIcon != null)
 		{
-			Image notSelectedImg = new ImageIcon(notSelectedPath).getImage()
-					.getScaledInstance(width, height, Image.SCALE_SMOOTH);
+			Image notSelectedImg = notSelectedIcon.getScaledInstance(width, height, Image.SCALE_SMOOTH);
 			button.setIcon(new ImageIcon(notSelectedImg));
 
-			Image selectedImg = new ImageIcon(selectedPath).getImage()
-					.getScaledInstance(width, height, Image.SCALE_SMOOTH);
+			Image selectedImg = selectedIcon.getScaledInstance(width, height, Image.SCALE_SMOOTH);
 			button.setSelectedIcon(new ImageIcon(selectedImg));
 		}
 		else
@@ -0,0 +1,282 @@
+package fifteenpuzzle;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A sequence of moves, stored as two bits per move in a long array (32 moves
+ * per long).
+ *
+ * reverse(), inverse() and slice() do not copy anything: they return a view of
+ * the same moves, read backwards, with every move inverted or over a smaller
+ * range. Once a view has been taken, both the view and the sequence it came
+ * from are copy-on-write: the first one to be changed (with add() or
+ * removeLast()) copies the moves first, so changing one never changes the
+ * other.
+ */
+public class MoveSequence implements Iterable<Move>
+{
+	private static final Move[] MOVES = Move.values();
+	private static final int MOVES_PER_WORD = 32;
+	private static final int DEFAULT_CAPACITY = 4; // Initial number of longs
+
+	private long[] words;
+	private int start; // Position of the first move in words
+	private int length;
+	private boolean reversed;
+	private boolean inverted;
+	private boolean shared; // True if words may be shared with another sequence, which must then be copied before it is changed
+
+	public MoveSequence()
+	{
+		this.words = new long[DEFAULT_CAPACITY];
+		this.start = 0;
+		this.length = 0;
+		this.reversed = false;
+		this.inverted = false;
+		this.shared = false;
+	}
+
+	/**
+	 * @param moves The moves to copy into the new sequence
+	 */
+	public MoveSequence(Iterable<Move> moves)
+	{
+		this();
+		for (Move m : moves)
+			add(m);
+	}
+
+	private MoveSequence(long[] words, int start, int length, boolean reversed, boolean inverted)
+	{
+		this.words = words;
+		this.start = start;
+		this.length = length;
+		this.reversed = reversed;
+		this.inverted = inverted;
+		this.shared = true;
+	}
+
+	public int size()
+	{
+		return length;
+	}
+
+	public boolean isEmpty()
+	{
+		return length == 0;
+	}
+
+	/**
+	 * @param index The index of the move (starting at 0)
+	 * @return The move at the given index
+	 */
+	public Move get(int index)
+	{
+		if (index < 0 || index >= length)
+			throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + length);
+		return MOVES[code(index)];
+	}
+
+	/**
+	 * @return The ordinal of the move at the given index (no bounds check)
+	 */
+	private int code(int index)
+	{
+		int pos = reversed ? start + length - 1 - index : start + index;
+		int code = (int) (words[pos / MOVES_PER_WORD] >>> ((pos % MOVES_PER_WORD) * 2)) & 3;
+		// The inverse of each move is next to it in Move (L/R, U/D)
+		return inverted ? code ^ 1 : code;
+	}
+
+	public Move getFirst()
+	{
+		return get(0);
+	}
+
+	public Move getLast()
+	{
+		return get(length - 1);
+	}
+
+	/**
+	 * Adds a move to the end of the sequence
+	 *
+	 * @param m The move to add
+	 * @return This sequence
+	 */
+	public MoveSequence add(Move m)
+	{
+		if (shared)
+			detach();
+
+		if (length == words.length * MOVES_PER_WORD)
+		{
+			long[] newWords = new long[words.length * 2];
+			System.arraycopy(words, 0, newWords, 0, words.length);
+			words = newWords;
+		}
+
+		words[length / MOVES_PER_WORD] |= (long) m.ordinal() << ((length % MOVES_PER_WORD) * 2);
+		length++;
+		return this;
+	}
+
+	/**
+	 * Removes the last move of the sequence
+	 *
+	 * @return The move that was removed
+	 */
+	public Move removeLast()
+	{
+		Move last = getLast();
+		if (shared)
+			detach();
+
+		length--;
+		words[length / MOVES_PER_WORD] &= ~(3L << ((length % MOVES_PER_WORD) * 2));
+		return last;
+	}
+
+	/**
+	 * Adds all the moves of the given sequence to the end of this one
+	 *
+	 * @param other The moves to add
+	 * @return This sequence
+	 */
+	public MoveSequence addAll(MoveSequence other)
+	{
+		// Read the size first, in case other is this sequence
+		int otherLength = other.length;
+		for (int i = 0; i < otherLength; i++)
+			add(MOVES[other.code(i)]);
+		return this;
+	}
+
+	/**
+	 * Copies the moves into a new array that belongs to this sequence alone, with
+	 * the first move at position 0
+	 */
+	private void detach()
+	{
+		int numWords = Math.max(DEFAULT_CAPACITY, (length + MOVES_PER_WORD - 1) / MOVES_PER_WORD + 1);
+		long[] newWords = new long[numWords];
+		for (int i = 0; i < length; i++)
+			newWords[i / MOVES_PER_WORD] |= (long) code(i) << ((i % MOVES_PER_WORD) * 2);
+
+		words = newWords;
+		start = 0;
+		reversed = false;
+		inverted = false;
+		shared = false;
+	}
+
+	/**
+	 * @return A view of the moves in the opposite order
+	 */
+	public MoveSequence reverse()
+	{
+		shared = true;
+		return new MoveSequence(words, start, length, !reversed, inverted);
+	}
+
+	/**
+	 * @return A view of the moves that undo this sequence (the moves in the
+	 *         opposite order, with each move inverted)
+	 */
+	public MoveSequence inverse()
+	{
+		shared = true;
+		return new MoveSequence(words, start, length, !reversed, !inverted);
+	}
+
+	/**
+	 * @param from The index of the first move (inclusive)
+	 * @param to   The index of the last move (exclusive)
+	 * @return A view of the moves between the given indices
+	 */
+	public MoveSequence slice(int from, int to)
+	{
+		if (from < 0 || to > length || from > to)
+			throw new IndexOutOfBoundsException("Slice " + from + " to " + to + " out of bounds for length " + length);
+
+		int newStart = reversed ? start + length - to : start + from;
+		shared = true;
+		return new MoveSequence(words, newStart, to - from, reversed, inverted);
+	}
+
+	/**
+	 * @return A copy of this sequence that does not share its moves with any other
+	 *         sequence
+	 */
+	public MoveSequence copy()
+	{
+		MoveSequence out = new MoveSequence(words, start, length, reversed, inverted);
+		out.detach();
+		return out;
+	}
+
+	public Iterator<Move> iterator()
+	{
+		return new Iterator<Move>()
+		{
+			private int next = 0;
+
+			public boolean hasNext()
+			{
+				return next < length;
+			}
+
+			public Move next()
+			{
+				if (next >= length)
+					throw new NoSuchElementException();
+				return MOVES[code(next++)];
+			}
+		};
+	}
+
+	/**
+	 * @return The moves as letters separated by spaces (e.g. "L U R")
+	 */
+	@Override
+	public String toString()
+	{
+		StringBuilder str = new StringBuilder(length * 2);
+		for (int i = 0; i < length; i++)
+		{
+			if (i > 0)
+				str.append(' ');
+			str.append(MOVES[code(i)].str);
+		}
+		return str.toString();
+	}
+
+	@Override
+	public boolean equals(Object obj)
+	{
+		if (this == obj)
+			return true;
+		if (!(obj instanceof MoveSequence))
+			return false;
+
+		MoveSequence other = (MoveSequence) obj;
+		if (length != other.length)
+			return false;
+		for (int i = 0; i < length; i++)
+		{
+			if (code(i) != other.code(i))
+				return false;
+		}
+		return true;
+	}
+
+	@Override
+	public int hashCode()
+	{
+		int hash = 1;
+		for (int i = 0; i < length; i++)
+			hash = 31 * hash + code(i);
+		return hash;
+	}
+}
@@ -0,0 +1,87 @@
+package fifteenpuzzle;
+
+import java.util.function.Consumer;
+
+/**
+ * A sequence of moves that is produced by one thread (e.g. a solver) while
+ * another thread consumes it (e.g. the animation). The producer adds moves
+ * with accept() and calls close() once there are no more.
+ */
+public class MoveStream implements Consumer<Move>
+{
+	private MoveSequence history;
+	private int numTaken; // Number of moves at the start of history that have been taken
+	private boolean closed;
+
+	public MoveStream()
+	{
+		history = new MoveSequence();
+		numTaken = 0;
+		closed = false;
+	}
+
+	/**
+	 * Adds a move to the end of the stream
+	 *
+	 * @param m The move to add
+	 */
+	@Override
+	public synchronized void accept(Move m)
+	{
+		history.add(m);
+		notifyAll();
+	}
+
+	/**
+	 * Marks the end of the stream. Any threads waiting for a move are woken up.
+	 */
+	public synchronized void close()
+	{
+		closed = true;
+		notifyAll();
+	}
+
+	/**
+	 * Gets the next move, waiting for the producer if necessary.
+	 *
+	 * This method includes pauses, so it must not be called directly from the EDT.
+	 *
+	 * @return The next move, or NULL if the stream is closed and all its moves have
+	 *         been taken
+	 * @throws InterruptedException If the thread is interrupted while waiting
+	 */
+	public synchronized Move take() throws InterruptedException
+	{
+		while (numTaken == history.size() && !closed)
+			wait();
+
+		return numTaken == history.size() ? null : history.get(numTaken++);
+	}
+
+	/**
+	 * Takes all the remaining moves, waiting for the stream to be closed.
+	 *
+	 * This method includes pauses, so it must not be called directly from the EDT.
+	 *
+	 * @return The moves that had not been taken yet
+	 * @throws InterruptedException If the thread is interrupted while waiting
+	 */
+	public synchronized MoveSequence takeAll() throws InterruptedException
+	{
+		while (!closed)
+			wait();
+
+		MoveSequence out = history.slice(numTaken, history.size());
+		numTaken = history.size();
+		return out;
+	}
+
+	/**
+	 * @return Every move that has been added to the stream so far, whether or not
+	 *         it has been taken
+	 */
+	public synchronized MoveSequence getHistory()
+	{
+		return history.copy();
+	}
+}
@@ -0,0 +1,507 @@
+package fifteenpuzzle;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * An additive pattern database for puzzles of a given shape. The tiles are
+ * split into disjoint groups and, for each group, a table records the minimum
+ * number of moves of that group's tiles needed to bring them all home. The sum
+ * over all groups is an admissible heuristic that is never lower than the
+ * Manhattan distance.
+ *
+ * To keep the tables small, each entry is stored in 4 bits as (exact value -
+ * Manhattan distance of the group) / 2, which is always a whole number because
+ * every move of a group tile changes its Manhattan distance by exactly one
+ * (tables with larger values fall back to one byte per entry). On square
+ * puzzles, the groups below the main diagonal are the mirror images of the
+ * groups above it, so they are looked up in the same table by reflecting the
+ * board across the diagonal.
+ *
+ * @see PuzzleSolver
+ */
+public class PatternDatabase
+{
+	public static final int MAX_CELLS = 20; // Largest puzzle (rows * cols) for which a database will be built
+	public static final long MAX_SEARCH_STATES = 100_000_000L; // Largest search space (number of states) used to build a single table
+
+	private static final int MAX_PACKED_DIFF = 0x0F;
+	private static final HashMap<String, PatternDatabase> databases = new HashMap<String, PatternDatabase>();
+
+	private int numRows;
+	private int numCols;
+	private ArrayList<Group> groups;
+
+	private PatternDatabase(int numRows, int numCols)
+	{
+		this.numRows = numRows;
+		this.numCols = numCols;
+		this.groups = new ArrayList<Group>();
+
+		if (numRows == numCols)
+			makeSymmetricGroups();
+		else
+			makeGroups();
+	}
+
+	/**
+	 * Gets the pattern database for puzzles with the given dimensions, building it
+	 * the first time it is requested. Building the database for a large puzzle
+	 * can take several seconds.
+	 *
+	 * @param numRows The number of rows
+	 * @param numCols The number of columns
+	 * @return The pattern database, or NULL if the puzzle is too large for one to
+	 *         be built
+	 */
+	public static synchronized PatternDatabase forShape(int numRows, int numCols)
+	{
+		if (numRows * numCols > MAX_CELLS)
+			return null;
+
+		String key = numRows + "x" + numCols;
+		PatternDatabase pdb = databases.get(key);
+		if (pdb == null)
+		{
+			pdb = new PatternDatabase(numRows, numCols);
+			databases.put(key, pdb);
+		}
+		return pdb;
+	}
+
+	/**
+	 * Splits the tiles of a square puzzle into groups above the diagonal, their
+	 * mirror images below the diagonal, and groups on the diagonal itself. Only
+	 * the first and last kinds need their own tables.
+	 */
+	private void makeSymmetricGroups()
+	{
+		int n = numRows;
+		ArrayList<Integer> upper = new ArrayList<Integer>();
+		ArrayList<Integer> diagonal = new ArrayList<Integer>();
+
+		for (int r = 0; r < n; r++)
+		{
+			for (int c = 0; c < n; c++)
+			{
+				if (r < c)
+					upper.add(r * n + c + 1);
+				else if (r == c && r != n - 1)
+					diagonal.add(r * n + c + 1);
+			}
+		}
+
+		for (int[] tiles : split(upper))
+		{
+			Table table = new Table(tiles);
+			groups.add(new Group(tiles, table, false));
+
+			int[] mirrored = new int[tiles.length];
+			for (int i = 0; i < tiles.length; i++)
+				mirrored[i] = mirror(tiles[i]);
+			groups.add(new Group(mirrored, table, true));
+		}
+
+		for (int[] tiles : split(diagonal))
+			groups.add(new Group(tiles, new Table(tiles), false));
+	}
+
+	/**
+	 * Splits the tiles of a rectangular puzzle into groups in row-major order.
+	 */
+	private void makeGroups()
+	{
+		ArrayList<Integer> all = new ArrayList<Integer>();
+		for (int value = 1; value < numRows * numCols; value++)
+			all.add(value);
+
+		for (int[] tiles : split(all))
+			groups.add(new Group(tiles, new Table(tiles), false));
+	}
+
+	/**
+	 * Splits the given tiles into the fewest groups that can each be built within
+	 * MAX_SEARCH_STATES, keeping the group sizes as even as possible.
+	 */
+	private ArrayList<int[]> split(ArrayList<Integer> tiles)
+	{
+		int numCells = numRows * numCols;
+		int maxSize = 1;
+		while (maxSize < tiles.size() && permutations(numCells, maxSize + 1) * numCells <= MAX_SEARCH_STATES)
+			maxSize++;
+
+		ArrayList<int[]> out = new ArrayList<int[]>();
+		if (tiles.isEmpty())
+			return out;
+
+		int numGroups = (tiles.size() + maxSize - 1) / maxSize;
+		int next = 0;
+		for (int g = 0; g < numGroups; g++)
+		{
+			int size = (tiles.size() - next) / (numGroups - g);
+			int[] group = new int[size];
+			for (int i = 0; i < size; i++)
+				group[i] = tiles.get(next++);
+			out.add(group);
+		}
+		return out;
+	}
+
+	/**
+	 * Gets the tile whose home cell is the reflection of the given tile's home
+	 * cell across the main diagonal (square puzzles only).
+	 */
+	private int mirror(int value)
+	{
+		int homeRow = (value - 1) / numCols;
+		int homeCol = (value - 1) % numCols;
+		return homeCol * numCols + homeRow + 1;
+	}
+
+	/**
+	 * Gives a lower bound on the number of moves needed to solve the given board
+	 *
+	 * @param board A 2-D int array with the values of all tiles (and
+	 *              Puzzle.BLANK_TILE for the blank tile)
+	 * @return The sum of the pattern database values of all groups
+	 */
+	public int estimate(int[][] board)
+	{
+		int[] positions = new int[numRows * numCols];
+		for (int r = 0; r < numRows; r++)
+		{
+			for (int c = 0; c < numCols; c++)
+				positions[board[r][c]] = r * numCols + c;
+		}
+		return estimate(positions);
+	}
+
+	/**
+	 * Gives a lower bound on the number of moves needed to solve the board where
+	 * each tile is at the given cell
+	 *
+	 * @param positions An array with, at each tile value, the index (row * numCols
+	 *                  + col) of the cell containing that tile
+	 * @return The sum of the pattern database values of all groups
+	 */
+	public int estimate(int[] positions)
+	{
+		int sum = 0;
+		for (Group group : groups)
+			sum += group.estimate(positions);
+		return sum;
+	}
+
+	/**
+	 * @return The number of bytes used by all the tables in this database
+	 */
+	public long sizeInBytes()
+	{
+		long bytes = 0;
+		for (Group group : groups)
+		{
+			if (!group.transposed)
+				bytes += group.table.entries.length;
+		}
+		return bytes;
+	}
+
+	/**
+	 * The number of ways to place k distinguishable tiles on n cells
+	 */
+	private static long permutations(int n, int k)
+	{
+		long out = 1;
+		for (int i = 0; i < k; i++)
+			out *= n - i;
+		return out;
+	}
+
+	/**
+	 * A group of tiles and the table from which its values are read
+	 */
+	private class Group
+	{
+		private int[] tiles;
+		private Table table;
+		private boolean transposed;
+
+		private Group(int[] tiles, Table table, boolean transposed)
+		{
+			this.tiles = tiles;
+			this.table = table;
+			this.transposed = transposed;
+		}
+
+		/**
+		 * Ranks the group's cells while reading them from positions, so that nothing
+		 * is allocated for each estimate
+		 */
+		private int estimate(int[] positions)
+		{
+			long index = 0;
+			long used = 0;
+			int manhattan = 0;
+			for (int i = 0; i < tiles.length; i++)
+			{
+				int cell = positions[tiles[i]];
+				if (transposed)
+					cell = (cell % numCols) * numCols + cell / numCols;
+
+				index += (cell - Long.bitCount(used & ((1L << cell) - 1))) * table.weights[i];
+				used |= 1L << cell;
+				manhattan += Math.abs(cell / numCols - table.homes[i] / numCols) + Math.abs(cell % numCols - table.homes[i] % numCols);
+			}
+			return manhattan + 2 * table.diff((int) index);
+		}
+	}
+
+	/**
+	 * The packed table for one group of tiles. Cells are given in the same order
+	 * as the tiles the table was built for.
+	 */
+	private class Table
+	{
+		private int[] homes;
+		private long[] weights;
+		private byte[] entries;
+		private boolean packed;
+
+		private Table(int[] tiles)
+		{
+			int numCells = numRows * numCols;
+			int k = tiles.length;
+
+			homes = new int[k];
+			for (int i = 0; i < k; i++)
+				homes[i] = tiles[i] - 1;
+
+			// weights[i] is the number of ways to place the tiles after tile i
+			weights = new long[k];
+			for (int i = 0; i < k; i++)
+				weights[i] = permutations(numCells - i - 1, k - i - 1);
+
+			build(numCells, k);
+		}
+
+		/**
+		 * Runs a breadth-first search backwards from the solved state over every
+		 * placement of the group's tiles and the blank. Moving a tile that is not in
+		 * the group is free, so those moves stay in the current layer.
+		 *
+		 * Each layer is kept as a bitset over all states rather than a list, so a
+		 * state is never queued twice, and the value of a placement is written to
+		 * the table as soon as the first state with that placement is reached
+		 * (which is the closest one, since layers are searched in order). The build
+		 * therefore needs three bits per state on top of the table itself.
+		 */
+		private void build(int numCells, int k)
+		{
+			int numPlacements = (int) permutations(numCells, k);
+			int numStates = numPlacements * numCells;
+			long[] visited = new long[(numStates + 63) / 64];
+			long[] current = new long[visited.length];
+			long[] next = new long[visited.length];
+			long[] placementDone = new long[(numPlacements + 63) / 64];
+
+			packed = true;
+			entries = new byte[(numPlacements + 1) / 2];
+
+			int[] cells = new int[k];
+			int[] occupant = new int[numCells];
+			int[] stack = new int[numCells]; // States reached by free moves, which all have the same placement
+			int lastPlacement = -1;
+
+			int start = rank(homes) * numCells + numCells - 1;
+			setBit(visited, start);
+			setBit(current, start);
+			long nextSize = 0;
+
+			for (int depth = 0;; depth++)
+			{
+				for (int w = 0; w < current.length; w++)
+				{
+					while (current[w] != 0)
+					{
+						int seed = w * 64 + Long.numberOfTrailingZeros(current[w]);
+						current[w] &= current[w] - 1;
+						stack[0] = seed;
+						int stackSize = 1;
+
+						while (stackSize > 0)
+						{
+							int state = stack[--stackSize];
+							int placement = state / numCells;
+							int blank = state % numCells;
+							if (placement != lastPlacement)
+							{
+								unrank(placement, cells);
+								Arrays.fill(occupant, -1);
+								for (int t = 0; t < k; t++)
+									occupant[cells[t]] = t;
+								lastPlacement = placement;
+							}
+
+							if (!getBit(placementDone, placement))
+							{
+								setBit(placementDone, placement);
+								store(placement, (depth - manhattan(cells)) / 2);
+							}
+
+							int blankRow = blank / numCols;
+							int blankCol = blank % numCols;
+							for (int dir = 0; dir < 4; dir++)
+							{
+								int row = blankRow + (dir == 0 ? -1 : dir == 1 ? 1 : 0);
+								int col = blankCol + (dir == 2 ? -1 : dir == 3 ? 1 : 0);
+								if (row < 0 || row >= numRows || col < 0 || col >= numCols)
+									continue;
+
+								int neighbor = row * numCols + col;
+								int t = occupant[neighbor];
+								if (t == -1)
+								{
+									// A free move: the neighbor is in this layer, even if it was already queued for the next one
+									int nextState = placement * numCells + neighbor;
+									if (!getBit(visited, nextState))
+										setBit(visited, nextState);
+									else if (getBit(next, nextState))
+									{
+										clearBit(next, nextState);
+										nextSize--;
+									}
+									else if (getBit(current, nextState))
+										clearBit(current, nextState);
+									else
+										continue;
+									stack[stackSize++] = nextState;
+								}
+								else
+								{
+									cells[t] = blank;
+									int nextState = rank(cells) * numCells + neighbor;
+									cells[t] = neighbor;
+									if (!getBit(visited, nextState))
+									{
+										setBit(visited, nextState);
+										setBit(next, nextState);
+										nextSize++;
+									}
+								}
+							}
+						}
+					}
+				}
+
+				if (nextSize == 0)
+					break;
+
+				long[] temp = current;
+				current = next;
+				next = temp;
+				nextSize = 0;
+			}
+		}
+
+		/**
+		 * Stores the value for a placement, switching to one byte per entry the
+		 * first time a value does not fit in 4 bits
+		 */
+		private void store(int placement, int diff)
+		{
+			if (packed && diff > MAX_PACKED_DIFF)
+			{
+				byte[] unpacked = new byte[entries.length * 2];
+				for (int i = 0; i < unpacked.length; i++)
+					unpacked[i] = (byte) ((entries[i >> 1] >> ((i & 1) * 4)) & 0x0F);
+				entries = unpacked;
+				packed = false;
+			}
+
+			if (packed)
+				entries[placement >> 1] |= (byte) (diff << ((placement & 1) * 4));
+			else
+				entries[placement] = (byte) diff;
+		}
+
+		/**
+		 * @return The stored (exact value - Manhattan distance) / 2 for the
+		 *         placement with the given index
+		 */
+		private int diff(int placement)
+		{
+			if (packed)
+				return (entries[placement >> 1] >> ((placement & 1) * 4)) & 0x0F;
+			else
+				return entries[placement] & 0xFF;
+		}
+
+		private int manhattan(int[] cells)
+		{
+			int sum = 0;
+			for (int i = 0; i < cells.length; i++)
+			{
+				sum += Math.abs(cells[i] / numCols - homes[i] / numCols);
+				sum += Math.abs(cells[i] % numCols - homes[i] % numCols);
+			}
+			return sum;
+		}
+
+		/**
+		 * Gives the index of the given placement of the group's tiles among all
+		 * placements of that many tiles
+		 */
+		private int rank(int[] cells)
+		{
+			long index = 0;
+			for (int i = 0; i < cells.length; i++)
+			{
+				int smaller = cells[i];
+				for (int j = 0; j < i; j++)
+				{
+					if (cells[j] < cells[i])
+						smaller--;
+				}
+				index += smaller * weights[i];
+			}
+			return (int) index;
+		}
+
+		/**
+		 * Fills the given array with the placement that has the given index
+		 */
+		private void unrank(int index, int[] cells)
+		{
+			long remainder = index;
+			long used = 0;
+			for (int i = 0; i < cells.length; i++)
+			{
+				int smaller = (int) (remainder / weights[i]);
+				remainder %= weights[i];
+
+				// Find the (smaller)th cell that has not been used yet
+				int cell = 0;
+				while ((used & (1L << cell)) != 0 || smaller-- > 0)
+					cell++;
+				used |= 1L << cell;
+				cells[i] = cell;
+			}
+		}
+	}
+
+	private static boolean getBit(long[] bits, int index)
+	{
+		return (bits[index >> 6] & (1L << index)) != 0;
+	}
+
+	private static void setBit(long[] bits, int index)
+	{
+		bits[index >> 6] |= 1L << index;
+	}
+
+	private static void clearBit(long[] bits, int index)
+	{
+		bits[index >> 6] &= ~(1L << index);
+	}
+}
@@ -1,15 +1,12 @@
 package fifteenpuzzle;
 
-import javax.swing.ImageIcon;
-import javax.swing.JLabel;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
 import javax.swing.JPanel;
-import javax.swing.SwingConstants;
-import java.awt.Color;
-import java.awt.Font;
-import java.awt.Image;
-import java.awt.Rectangle;
-import java.io.File;
-import java.util.LinkedList;
+import javax.swing.SwingUtilities;
 
 /**
  * Represents a puzzle with dimensions numRows x numCols.
@@ -19,22 +16,19 @@ import java.util.LinkedList;
 public class Puzzle
 {
 	public static final int BLANK_TILE = 0;
-	private static final Color DEFAULT_DARK_WOOD = new Color(143, 76, 6);
-	private static final Color DEFAULT_LIGHT_WOOD = new Color(239, 210, 171);
-	private static final Color DEFAULT_DARK_METAL = Color.GRAY;
-	private static final Color DEFAULT_LIGHT_METAL = Color.LIGHT_GRAY;
-	private static final Font TILE_FONT = new Font("Dialog", Font.PLAIN, 32);
 
 	private int numRows;
 	private int numCols;
 	private int blankRow;
 	private int blankCol;
 	private int tileSize;
-	private Tile[][] tiles;
+	private int[][] values; // The value of the tile in each cell; the canvas only displays this
+	private BoardCanvas canvas;
 	private JPanel innerBoard;
-	private boolean busy;
-	private boolean scrambleComplete;
-	private SyncObject moveSync;
+	private volatile boolean scrambleComplete;
+	private volatile CompletableFuture<Void> lastSlide; // Completed when the tile that was moved last has stopped (only replaced on the EDT)
+	private ArrayDeque<int[]> queuedSlides; // Moves made in the model that have not started sliding on the board yet
+	private int numMisplaced; // Number of tiles that are not in their home cell
 
 	/**
 	 * Creates a new puzzle with the given dimensions on the specified board. The
@@ -53,159 +47,333 @@ public class Puzzle
 		tileSize = Math.min(innerBoard.getWidth() / numCols, innerBoard.getHeight() / numRows);
 		blankRow = numRows - 1;
 		blankCol = numCols - 1;
-		busy = false;
 		scrambleComplete = true;
-		moveSync = new SyncObject();
-
-		tiles = makeTiles();
+		lastSlide = CompletableFuture.completedFuture(null);
+		queuedSlides = new ArrayDeque<int[]>();
+		numMisplaced = 0;
+		values = PuzzleSolver.solvedState(numRows, numCols);
+
+		canvas = new BoardCanvas(numRows, numCols, tileSize, innerBoard.getBackground());
+		canvas.loadImages();
+		canvas.setBounds(0, 0, innerBoard.getWidth(), innerBoard.getHeight());
+		innerBoard.add(canvas);
 		innerBoard.revalidate();
 		innerBoard.repaint();
 	}
 
-	private Tile[][] makeTiles()
+	/**
+	 * Sets the puzzle to match the given state, once the tile that is currently
+	 * moving (if any) has stopped
+	 * 
+	 * @param pattern A 2-D int array with the values of all tiles (and
+	 *                Puzzle.BLANK_TILE for the blank tile)
+	 * @return A future that is completed once the puzzle has been updated
+	 */
+	public CompletableFuture<Void> applyStateInstant(int[][] pattern)
 	{
-		Tile[][] tiles = new Tile[numRows][numCols];
-		int[][] solvedState = PuzzleSolver.solvedState(numRows, numCols);
+		scrambleComplete = false;
+		CompletableFuture<Void> done = new CompletableFuture<Void>();
 
-		for (int r = 0; r < numRows; r++)
+		afterLastSlide(done, new Runnable()
 		{
-			for (int c = 0; c < numCols; c++)
+			public void run()
 			{
-				if (r != blankRow || c != blankCol)
-					tiles[r][c] = new Tile(solvedState[r][c], c * tileSize, r * tileSize, tileSize, isDark(solvedState[r][c]), innerBoard);
+				setState(pattern);
+				scrambleComplete = true;
+				done.complete(null);
 			}
-		}
+		});
 
-		return tiles;
+		return done;
 	}
 
-	private boolean isDark(int value)
+	/**
+	 * Applies the given sequence to the puzzle without animating it, starting in
+	 * the current state
+	 * 
+	 * @param sequence The list of moves to apply to the puzzle
+	 * @return A future that is completed once the puzzle has been updated
+	 */
+	public CompletableFuture<Void> applySequenceInstant(MoveSequence sequence)
 	{
-		int[] homeCell = PuzzleSolver.getHomeCell(value, numRows, numCols);
-		if (homeCell[0] == PuzzleSolver.NO_CELL)
-			return false;
+		scrambleComplete = false;
+		CompletableFuture<Void> done = new CompletableFuture<Void>();
 
-		switch (Settings.TILE_PATTERN)
+		afterLastSlide(done, new Runnable()
 		{
-			case LIGHT:
-				return false;
-			case DARK:
-				return true;
-			case COLUMNS:
-				return homeCell[1] % 2 == 0;
-			case ROWS:
-				return homeCell[0] % 2 == 0;
-			case CHECKER:
-				return (homeCell[0] + homeCell[1]) % 2 == 0;
-			default:
-				return false;
-		}
+			public void run()
+			{
+				PuzzleScrambler.applySequenceInPlace(values, sequence);
+				showState();
+				scrambleComplete = true;
+				done.complete(null);
+			}
+		});
+
+		return done;
 	}
 
 	/**
-	 * Sets the puzzle to match the given state. Once complete, the animation
-	 * notifies any waiting threads via the scrambleSync object.
+	 * Runs the given update on the EDT once everything shown on the board so far
+	 * has finished, and makes everything shown after it wait until done is
+	 * completed. lastSlide is only read and replaced on the EDT, so updates are
+	 * always run in the order in which they were asked for.
 	 * 
-	 * @param pattern      A 2-D int array with the values of all tiles (and
-	 *                     Puzzle.BLANK_TILE for the blank tile)
-	 * @param scrambleSync The SyncObject that is to be notified when the animation
-	 *                     is complete
+	 * @param done   The future that the update completes once it has finished
+	 * @param update The change to make to the model and the board
 	 */
-	public void applyStateInstant(int[][] pattern, SyncObject scrambleSync)
+	private void afterLastSlide(CompletableFuture<Void> done, Runnable update)
 	{
-		Thread animationThread = new Thread(new Runnable()
+		runOnEDT(new Runnable()
 		{
 			public void run()
 			{
-				scrambleComplete = false;
-				innerBoard.removeAll();
-				tiles = new Tile[numRows][numCols];
-
-				for (int r = 0; r < numRows; r++)
+				CompletableFuture<Void> previous = lastSlide;
+				lastSlide = done;
+				previous.thenRun(new Runnable()
 				{
-					for (int c = 0; c < numCols; c++)
+					public void run()
 					{
-						if (pattern[r][c] != Puzzle.BLANK_TILE)
-							tiles[r][c] = new Tile(pattern[r][c], c * tileSize, r * tileSize, tileSize, isDark(pattern[r][c]), innerBoard);
+						runOnEDT(update);
 					}
-				}
+				});
+			}
+		});
+	}
 
-				int[] blankCell = PuzzleScrambler.getBlankCell(pattern);
-				blankRow = blankCell[0];
-				blankCol = blankCell[1];
+	/**
+	 * Runs the given code on the EDT: straight away if this is the EDT, and later
+	 * otherwise
+	 */
+	private static void runOnEDT(Runnable r)
+	{
+		if (SwingUtilities.isEventDispatchThread())
+			r.run();
+		else
+			SwingUtilities.invokeLater(r);
+	}
 
-				innerBoard.revalidate();
-				innerBoard.repaint();
+	/**
+	 * Sets the model to the given state and shows it on the board
+	 * 
+	 * @param pattern A 2-D int array with the values of all tiles (and
+	 *                Puzzle.BLANK_TILE for the blank tile)
+	 */
+	private void setState(int[][] pattern)
+	{
+		for (int r = 0; r < numRows; r++)
+			System.arraycopy(pattern[r], 0, values[r], 0, numCols);
+		showState();
+	}
 
-				scrambleComplete = true;
-				synchronized (scrambleSync)
+	/**
+	 * Shows the model on the board (without animating anything) and recounts the
+	 * misplaced tiles
+	 */
+	private void showState()
+	{
+		numMisplaced = 0;
+
+		for (int r = 0; r < numRows; r++)
+		{
+			for (int c = 0; c < numCols; c++)
+			{
+				if (values[r][c] == BLANK_TILE)
 				{
-					scrambleSync.notifyAll();
+					blankRow = r;
+					blankCol = c;
 				}
+				else if (!isHome(values[r][c], r, c))
+					numMisplaced++;
+			}
+		}
+
+		canvas.setState(values);
+	}
+
+	/**
+	 * Scrambles the puzzle by animating the given scramble sequence, starting in
+	 * the current state. Each move is started by AnimationEngine as soon as the
+	 * previous one is finished, so no thread waits for the animation. Each move
+	 * starts when the previous one was meant to end, so the scramble keeps its
+	 * pace (skipping frames if needed) even if moves are shorter than a frame.
+	 * 
+	 * @param sequence The list of moves to apply to the puzzle
+	 * @return A future that is completed when the animation is complete
+	 */
+	public CompletableFuture<Void> applySequenceAnimated(MoveSequence sequence)
+	{
+		scrambleComplete = false;
+		CompletableFuture<Void> done = new CompletableFuture<Void>();
+		Iterator<Move> moves = sequence.iterator();
+
+		afterLastSlide(done, new Runnable()
+		{
+			public void run()
+			{
+				animateMoves(moves, System.nanoTime(), done);
 			}
 		});
-		animationThread.start();
+
+		return done;
 	}
 
 	/**
-	 * Scrambles the puzzle by applying the given scramble sequence, starting in the
-	 * current state. Once complete, the animation notifies any waiting threads via
-	 * the scrambleSync object.
+	 * Starts sliding the next moves, one after the other, and completes done once
+	 * there are no moves left
 	 * 
-	 * @param sequence     The list of moves to apply to the puzzle
-	 * @param scrambleSync The SyncObject that is to be notified when the animation
-	 *                     is complete
+	 * @param startTime The time (from System.nanoTime()) at which the next move
+	 *                  starts
 	 */
-	public void applySequenceAnimated(LinkedList<Move> sequence, SyncObject scrambleSync)
+	private void animateMoves(Iterator<Move> moves, long startTime, CompletableFuture<Void> done)
+	{
+		while (moves.hasNext())
+		{
+			int[] cells = doMove(moves.next());
+			if (cells == null)
+				continue;
+
+			CompletableFuture<Void> slide = slideTile(cells, Settings.SCRAMBLE_SPEED, startTime);
+			long endTime = startTime + Settings.SCRAMBLE_SPEED * 1000000L;
+			if (!slide.isDone())
+			{
+				slide.thenRun(new Runnable()
+				{
+					public void run()
+					{
+						animateMoves(moves, endTime, done);
+					}
+				});
+				return;
+			}
+			startTime = endTime;
+		}
+
+		scrambleComplete = true;
+		done.complete(null);
+	}
+
+	/**
+	 * Applies the moves from the given stream as they become available, starting
+	 * in the current state. If the animation takes longer than
+	 * Settings.MAX_SCRAMBLE_TIME, the remaining moves are applied instantly once
+	 * the stream is closed.
+	 * 
+	 * Taking moves from the stream may have to wait for the producer, so this
+	 * uses one thread for the whole stream (but none for each move). That thread
+	 * only takes the moves: each one is made in the model and started on the
+	 * board on the EDT, like every other move.
+	 * 
+	 * @param stream The stream of moves to apply to the puzzle
+	 * @return A future that is completed when the animation is complete
+	 */
+	public CompletableFuture<Void> applyStreamAnimated(MoveStream stream)
 	{
-		int oldAnimationTime = Settings.ANIMATION_TIME;
-		Settings.ANIMATION_TIME = Settings.SCRAMBLE_SPEED;
 		scrambleComplete = false;
+		CompletableFuture<Void> done = new CompletableFuture<Void>();
 
 		Thread animationThread = new Thread(new Runnable()
 		{
 			public void run()
 			{
-				for (Move m : sequence)
+				long startTime = System.currentTimeMillis();
+
+				try
 				{
-					switch (m)
+					// Keep to the pace of the scramble, but do not catch up on time spent waiting for the producer
+					long slideStart = System.nanoTime();
+					Move m;
+					while (System.currentTimeMillis() - startTime <= Settings.MAX_SCRAMBLE_TIME && (m = stream.take()) != null)
 					{
-						case LEFT:
-							moveLeft();
-							break;
-						case RIGHT:
-							moveRight();
-							break;
-						case UP:
-							moveUp();
-							break;
-						case DOWN:
-							moveDown();
-							break;
-						default:
-							break;
+						slideStart = Math.max(slideStart, System.nanoTime() - Settings.FRAME_TIME * 1000000L);
+						if (slideOnEDT(m, slideStart).get())
+							slideStart += Settings.SCRAMBLE_SPEED * 1000000L;
 					}
-				}
 
-				// Mark the scramble as complete, notify the waiting thread(s) that the scramble is complete, and reset the animation time
-				scrambleComplete = true;
-				synchronized (scrambleSync)
+					// Out of time: skip to the end
+					MoveSequence remaining = stream.takeAll();
+					runOnEDT(new Runnable()
+					{
+						public void run()
+						{
+							if (!remaining.isEmpty())
+							{
+								PuzzleScrambler.applySequenceInPlace(values, remaining);
+								showState();
+							}
+							scrambleComplete = true;
+							done.complete(null);
+						}
+					});
+				}
+				catch (InterruptedException | ExecutionException e)
 				{
-					scrambleSync.notifyAll();
+					e.printStackTrace();
+					runOnEDT(new Runnable()
+					{
+						public void run()
+						{
+							scrambleComplete = true;
+							done.complete(null);
+						}
+					});
 				}
-				Settings.ANIMATION_TIME = oldAnimationTime;
 			}
 		});
-		animationThread.start();
+
+		afterLastSlide(done, new Runnable()
+		{
+			public void run()
+			{
+				animationThread.start();
+			}
+		});
+
+		return done;
 	}
 
 	/**
-	 * Tries to slide a tile in the specified direction. The move fails if the
-	 * puzzle is in the process of being scrambled, is busy (i.e. another tile is
-	 * being moved), or if there is no tile that can be moved in the given
-	 * direction.
+	 * Makes the given move and starts sliding it on the EDT
 	 * 
-	 * This method includes pauses, so it must not be called directly from the EDT.
+	 * @param startTime The time (from System.nanoTime()) at which the slide starts
+	 * @return A future that is completed once the tile has stopped, with TRUE if
+	 *         a tile was moved and FALSE if the move did nothing
+	 */
+	private CompletableFuture<Boolean> slideOnEDT(Move m, long startTime)
+	{
+		CompletableFuture<Boolean> moved = new CompletableFuture<Boolean>();
+
+		runOnEDT(new Runnable()
+		{
+			public void run()
+			{
+				int[] cells = doMove(m);
+				if (cells == null)
+					moved.complete(false);
+				else
+					slideTile(cells, Settings.SCRAMBLE_SPEED, startTime).thenRun(new Runnable()
+					{
+						public void run()
+						{
+							moved.complete(true);
+						}
+					});
+			}
+		});
+
+		return moved;
+	}
+
+	/**
+	 * Tries to move a tile in the specified direction. The move is made in the
+	 * model straight away, so isSolved() is up to date as soon as this returns,
+	 * and the tile is queued to slide on the board once the tiles moved before
+	 * it have stopped. If the board falls more than Settings.MOVE_QUEUE_THRESHOLD
+	 * moves behind, the queued slides are sped up so that it catches up. The move
+	 * fails if the puzzle is in the process of being scrambled, or if there is no
+	 * tile that can be moved in the given direction.
+	 * 
+	 * This method does not wait for anything; it must be called from the EDT.
 	 * 
 	 * @param m The direction in which to move
 	 * @return TRUE if the move was successful and FALSE otherwise
@@ -215,22 +383,73 @@ public class Puzzle
 		if (!scrambleComplete)
 			return false;
 
-		// Wait for previous move to finish
-		synchronized (moveSync)
+		int[] cells = doMove(m);
+		if (cells == null)
+			return false;
+
+		queuedSlides.add(cells);
+		if (queuedSlides.size() == 1 && lastSlide.isDone())
+		{
+			CompletableFuture<Void> slides = new CompletableFuture<Void>();
+			lastSlide = slides;
+			showQueuedSlides(System.nanoTime(), slides);
+		}
+		return true;
+	}
+
+	/**
+	 * Slides the queued tiles one after the other, and completes slides once the
+	 * board has caught up with the model. Each slide starts when the previous
+	 * one was meant to end. Past Settings.MOVE_QUEUE_THRESHOLD queued moves, the
+	 * slides are shortened in proportion to the number of queued moves, so the
+	 * board is never more than about MOVE_QUEUE_THRESHOLD * ANIMATION_TIME behind
+	 * (and several short slides may end within one frame).
+	 * 
+	 * @param startTime The time (from System.nanoTime()) at which the next slide
+	 *                  starts
+	 * @param slides    The future that move() put in lastSlide for these slides.
+	 *                  lastSlide itself may have been replaced by an update
+	 *                  waiting for these slides since then.
+	 */
+	private void showQueuedSlides(long startTime, CompletableFuture<Void> slides)
+	{
+		while (!queuedSlides.isEmpty())
 		{
-			while (busy)
+			int depth = queuedSlides.size();
+			int[] cells = queuedSlides.poll();
+			int duration = Settings.ANIMATION_TIME;
+			if (depth > Settings.MOVE_QUEUE_THRESHOLD)
+				duration = Settings.ANIMATION_TIME * Settings.MOVE_QUEUE_THRESHOLD / depth;
+
+			CompletableFuture<Void> slide = slideTile(cells, duration, startTime);
+			long endTime = startTime + duration * 1000000L;
+			if (!slide.isDone())
 			{
-				try
-				{
-					moveSync.wait();
-				}
-				catch (InterruptedException e)
+				slide.thenRun(new Runnable()
 				{
-					e.printStackTrace();
-				}
+					public void run()
+					{
+						showQueuedSlides(endTime, slides);
+					}
+				});
+				return;
 			}
+			startTime = endTime;
 		}
 
+		slides.complete(null);
+	}
+
+	/**
+	 * Makes a move in the model
+	 * 
+	 * @param m The direction in which to move
+	 * @return The cells the tile moves from and to (fromRow, fromCol, toRow,
+	 *         toCol), or NULL if there is no tile that can be moved in the given
+	 *         direction
+	 */
+	private int[] doMove(Move m)
+	{
 		switch (m)
 		{
 			case LEFT:
@@ -242,167 +461,132 @@ public class Puzzle
 			case DOWN:
 				return moveDown();
 			default:
-				return false;
+				return null;
 		}
 	}
 
 	/**
-	 * Tries to slide a tile one square to the right. The move fails if there is no
-	 * tile that can be moved to the right.
-	 * 
-	 * This method includes pauses, so it must not be called directly from the EDT.
+	 * Tries to move a tile one square to the right in the model. The move fails if
+	 * there is no tile that can be moved to the right.
 	 * 
-	 * @return TRUE if the move was successful and FALSE otherwise
+	 * @return The cells the tile moves from and to (fromRow, fromCol, toRow,
+	 *         toCol), or NULL if the move is impossible
 	 */
-	private boolean moveRight()
+	private int[] moveRight()
 	{
-		// Block other tiles from moving while this one is moving
-		setBusy(true);
-
 		// Move is impossible
 		if (blankCol == 0)
-		{
-			setBusy(false);
-			return false;
-		}
+			return null;
 
 		// Find the new position of the blank space
 		blankCol--;
 
 		// Move the appropriate tile
-		tiles[blankRow][blankCol].slideHorizontal(this.tileSize, this);
-		tiles[blankRow][blankCol + 1] = this.tiles[blankRow][blankCol];
-		tiles[blankRow][blankCol] = null;
-
-		return true;
+		return updateModel(blankRow, blankCol, blankRow, blankCol + 1);
 	}
 
 	/**
-	 * Tries to slide a tile one square to the left. The move fails if there is no
-	 * tile that can be moved to the left.
-	 * 
-	 * This method includes pauses, so it must not be called directly from the EDT.
+	 * Tries to move a tile one square to the left in the model. The move fails if
+	 * there is no tile that can be moved to the left.
 	 * 
-	 * @return TRUE if the move was successful and FALSE otherwise
+	 * @return The cells the tile moves from and to (fromRow, fromCol, toRow,
+	 *         toCol), or NULL if the move is impossible
 	 */
-	private boolean moveLeft()
+	private int[] moveLeft()
 	{
-		// Block other tiles from moving while this one is moving
-		setBusy(true);
-
 		// Move is impossible
 		if (blankCol == this.numCols - 1)
-		{
-			setBusy(false);
-			return false;
-		}
+			return null;
 
 		// Find the new position of the blank space
 		blankCol++;
 
 		// Move the appropriate tile
-		tiles[blankRow][blankCol].slideHorizontal(-this.tileSize, this);
-		tiles[blankRow][blankCol - 1] = this.tiles[blankRow][blankCol];
-		tiles[blankRow][blankCol] = null;
-
-		return true;
+		return updateModel(blankRow, blankCol, blankRow, blankCol - 1);
 	}
 
 	/**
-	 * Tries to slide a tile one square up. The move fails if there is no tile that
-	 * can be moved up.
+	 * Tries to move a tile one square up in the model. The move fails if
+	 * there is no tile that can be moved up.
 	 * 
-	 * This method includes pauses, so it must not be called directly from the EDT.
-	 * 
-	 * @return TRUE if the move was successful and FALSE otherwise
+	 * @return The cells the tile moves from and to (fromRow, fromCol, toRow,
+	 *         toCol), or NULL if the move is impossible
 	 */
-	private boolean moveUp()
+	private int[] moveUp()
 	{
-		// Block other tiles from moving while this one is moving
-		setBusy(true);
-
 		// Move is impossible
 		if (blankRow == numRows - 1)
-		{
-			setBusy(false);
-			return false;
-		}
+			return null;
 
 		// Find the new position of the blank space
 		blankRow++;
 
 		// Move the appropriate tile
-		tiles[blankRow][blankCol].slideVertical(this.tileSize, this);
-		tiles[blankRow - 1][blankCol] = this.tiles[blankRow][blankCol];
-		tiles[blankRow][blankCol] = null;
-
-		return true;
+		return updateModel(blankRow, blankCol, blankRow - 1, blankCol);
 	}
 
 	/**
-	 * Tries to slide a tile one square down. The move fails if there is no tile
-	 * that can be moved down.
+	 * Tries to move a tile one square down in the model. The move fails if
+	 * there is no tile that can be moved down.
 	 * 
-	 * This method includes pauses, so it must not be called directly from the EDT.
-	 * 
-	 * @return TRUE if the move was successful and FALSE otherwise
+	 * @return The cells the tile moves from and to (fromRow, fromCol, toRow,
+	 *         toCol), or NULL if the move is impossible
 	 */
-	private boolean moveDown()
+	private int[] moveDown()
 	{
-		// Block other tiles from moving while this one is moving
-		setBusy(true);
-
 		// Move is impossible
 		if (blankRow == 0)
-		{
-			setBusy(false);
-			return false;
-		}
+			return null;
 
 		// Find the new position of the blank space
 		blankRow--;
 
 		// Move the appropriate tile
-		tiles[blankRow][blankCol].slideVertical(-this.tileSize, this);
-		tiles[blankRow + 1][blankCol] = this.tiles[blankRow][blankCol];
-		tiles[blankRow][blankCol] = null;
-
-		return true;
+		return updateModel(blankRow, blankCol, blankRow + 1, blankCol);
 	}
 
 	/**
-	 * Sets the state of the puzzle (busy or not busy).
-	 * 
-	 * The puzzle should be marked busy while a tile is in motion. As long as the
-	 * puzzle is marked busy, it will ignore any attempts to move pieces.
+	 * Updates the model and the number of misplaced tiles after a tile slides from
+	 * one cell into the blank cell next to it
 	 * 
-	 * @param busy Whether or not the puzzle is busy
+	 * @param fromRow The row the tile was in
+	 * @param fromCol The column the tile was in
+	 * @param toRow   The row the tile is now in (previously blank)
+	 * @param toCol   The column the tile is now in (previously blank)
 	 */
-	protected void setBusy(boolean busy)
+	private int[] updateModel(int fromRow, int fromCol, int toRow, int toCol)
 	{
-		this.busy = busy;
+		int value = values[fromRow][fromCol];
+		values[toRow][toCol] = value;
+		values[fromRow][fromCol] = BLANK_TILE;
+
+		if (isHome(value, fromRow, fromCol))
+			numMisplaced++;
+		if (isHome(value, toRow, toCol))
+			numMisplaced--;
+
+		return new int[] { fromRow, fromCol, toRow, toCol };
+	}
+
+	/**
+	 * @return TRUE if the given tile belongs in the given cell (as defined by
+	 *         PuzzleSolver.solvedState() ) and FALSE otherwise
+	 */
+	private boolean isHome(int value, int row, int col)
+	{
+		return value == row * numCols + col + 1;
 	}
 
 	/**
-	 * Checks if the puzzle is solved (as defined by PuzzleSolver.solvedState() )
+	 * Checks if the puzzle is solved (as defined by PuzzleSolver.solvedState() ).
+	 * The number of misplaced tiles is kept up to date as tiles move, so this
+	 * takes constant time.
 	 * 
 	 * @return TRUE if the puzzle is solved and FALSE otherwise
 	 */
 	public boolean isSolved()
 	{
-		int[][] solvedState = PuzzleSolver.solvedState(numRows, numCols);
-
-		for (int r = numRows - 1; r >= 0; r--)
-		{
-			for (int c = numCols - 1; c >= 0; c--)
-			{
-				if (tiles[r][c] == null && solvedState[r][c] != BLANK_TILE)
-					return false;
-				if (tiles[r][c] != null && tiles[r][c].value != solvedState[r][c])
-					return false;
-			}
-		}
-		return true;
+		return numMisplaced == 0;
 	}
 
 	/**
@@ -416,215 +600,77 @@ public class Puzzle
 		return scrambleComplete;
 	}
 
+	/**
+	 * @return A new 2-D int array with the values of all tiles (and
+	 *         Puzzle.BLANK_TILE for the blank tile)
+	 */
 	public int[][] currentState()
 	{
-		int[][] out = new int[numRows][numCols];
+		return copyState(null);
+	}
+
+	/**
+	 * Copies the current state into the given array, so that callers that need
+	 * the state repeatedly can reuse the same buffer
+	 * 
+	 * @param dest The array to copy into. If it is NULL or does not have the
+	 *             dimensions of the puzzle, a new array is allocated.
+	 * @return The array holding the copy (dest, unless a new one was needed)
+	 */
+	public int[][] copyState(int[][] dest)
+	{
+		if (dest == null || dest.length != numRows || dest[0].length != numCols)
+			dest = new int[numRows][numCols];
 
 		for (int r = 0; r < numRows; r++)
-		{
-			for (int c = 0; c < numCols; c++)
-			{
-				if (tiles[r][c] == null)
-					out[r][c] = BLANK_TILE;
-				else
-					out[r][c] = tiles[r][c].value;
-			}
-		}
+			System.arraycopy(values[r], 0, dest[r], 0, numCols);
 
-		return out;
+		return dest;
 	}
 
-	protected SyncObject getMoveSync()
+	/**
+	 * Reads the value in a single cell without copying the state
+	 * 
+	 * @param row The row of the cell
+	 * @param col The column of the cell
+	 * @return The value of the tile in the given cell, or Puzzle.BLANK_TILE if it
+	 *         is blank
+	 */
+	public int getTile(int row, int col)
 	{
-		return moveSync;
+		return values[row][col];
 	}
 
 	/**
-	 * An individual tile in the puzzle
-	 * 
-	 * @author louis
+	 * @return The row of the blank cell
 	 */
-	private class Tile
+	public int getBlankRow()
 	{
-		private int value;
-		private JLabel image;
-		private JPanel board;
-
-		/**
-		 * Creates a tile with the specified value, initial position, and size, and
-		 * places it on the given board.
-		 * 
-		 * @param value The number on the tile
-		 * @param x     The initial x-coordinate of the tile's upper-left corner (in
-		 *              pixels)
-		 * @param y     The initial y-coordinate of the tile's upper-left corner (in
-		 *              pixels)
-		 * @param size  The side length of the tile (in pixels)
-		 * @param board The board on which the tile should be placed
-		 */
-		private Tile(int value, int x, int y, int size, boolean dark, JPanel board)
-		{
-			// Copy arguments to instance variables
-			this.value = value;
-			this.board = board;
-
-			// Draw tile and add it to the board
-			this.image = drawImage(x, y, size, dark);
-			this.board.add(this.image);
-		}
-
-		/**
-		 * Generates the square JLabel that represents the tile onscreen. The tile
-		 * images are taken from the Settings.ICON_DIR\Settings.STYLE\color directory.
-		 * If the file is not found, the puzzle uses a simple coloured JLabel.
-		 * 
-		 * @param x    The x-coordinate of the tile's upper-left corner (in pixels)
-		 * @param y    The y-coordinate of the tile's upper-left corner (in pixels)
-		 * @param size The side length of the tile (in pixels)
-		 * @return The JLabel used to represent the tile
-		 */
-		private JLabel drawImage(int x, int y, int size, boolean dark)
-		{
-			JLabel image;
-
-			String iconFileName = Settings.getTilePath(value, dark);
-
-			// Try to use the icons in AppData
-			if (new File(iconFileName).exists())
-			{
-				// Locate and scale tile icon
-				Image img = new ImageIcon(iconFileName).getImage();
-				ImageIcon icon = new ImageIcon(img.getScaledInstance(size, size, java.awt.Image.SCALE_SMOOTH));
-
-				// Create the JLabel with the scaled icon
-				image = new JLabel();
-				image.setBounds(new Rectangle(x, y, size, size));
-				image.setIcon(icon);
-			}
-			// If the icons are not found, use a default image
-			else
-			{
-				image = new JLabel(Integer.toString(value), SwingConstants.CENTER);
-				image.setBounds(new Rectangle(x + 1, y + 1, size - 2, size - 2));
-				image.setFont(TILE_FONT);
-				image.setOpaque(true);
-				// Choose the background color based on the style and whether the tile is light or dark
-				if (Settings.STYLE == Appearance.WOOD)
-				{
-					if (dark)
-						image.setBackground(DEFAULT_DARK_WOOD);
-					else
-						image.setBackground(DEFAULT_LIGHT_WOOD);
-				}
-				else
-				{
-					if (dark)
-						image.setBackground(DEFAULT_DARK_METAL);
-					else
-						image.setBackground(DEFAULT_LIGHT_METAL);
-				}
-			}
-
-			return image;
-		}
-
-		/**
-		 * Moves the tile the specified number of pixels horizontally. Positive values
-		 * correspond to moving to the right, while negative values correspond to moving
-		 * to the left.
-		 * 
-		 * This method includes a pause, so it must not be called directly from the EDT.
-		 * 
-		 * @param dx     The number of pixels to move
-		 * @param puzzle The puzzle which the tile is part of
-		 */
-		private void slideHorizontal(int dx, Puzzle puzzle)
-		{
-			SyncObject sync = new SyncObject();
-			int sgn = (dx > 0 ? 1 : -1);
-			int numSteps = Math.abs(dx) / Settings.STEP_SIZE;
-			long dt = Settings.ANIMATION_TIME / numSteps;
-			int finalX = image.getX() + dx;
-
-			if (Math.abs(dx) < Settings.STEP_SIZE / 2 || dt == 0)
-				image.setLocation(finalX, image.getY());
-			else
-			{
-				synchronized (sync)
-				{
-					for (int i = 0; i < numSteps; i++)
-					{
-						image.setLocation(image.getX() + sgn * Settings.STEP_SIZE, image.getY());
-						innerBoard.repaint();
-
-						try
-						{
-							sync.wait(dt);
-						}
-						catch (InterruptedException e)
-						{
-							break;
-						}
-					}
-				}
-				image.setLocation(finalX, image.getY());
-				innerBoard.repaint();
-
-				puzzle.setBusy(false);
-				synchronized (puzzle.getMoveSync())
-				{
-					puzzle.getMoveSync().notify();
-				}
-			}
-		}
-
-		/**
-		 * Moves the tile the specified number of pixels vertically. Positive values
-		 * correspond to moving up, while negative values correspond to moving down.
-		 * 
-		 * This method includes a pause, so it must not be called directly from the EDT.
-		 * 
-		 * @param dy     The number of pixels to move
-		 * @param puzzle The puzzle which the tile is part of
-		 */
-		private void slideVertical(int dy, Puzzle puzzle)
-		{
-			int sgn = (dy > 0 ? 1 : -1);
-			int numSteps = Math.abs(dy) / Settings.STEP_SIZE;
-			long dt = Math.max(Settings.ANIMATION_TIME / numSteps, 1);
-			int finalY = image.getY() - dy;
-
-			if (Math.abs(dy) < Settings.STEP_SIZE / 2 || dt == 0)
-				image.setLocation(image.getX(), finalY);
-			else
-			{
-				SyncObject sync = new SyncObject();
-				synchronized (sync)
-				{
-					for (int i = 0; i < numSteps; i++)
-					{
-						image.setLocation(image.getX(), image.getY() - sgn * Settings.STEP_SIZE);
-						innerBoard.repaint();
+		return blankRow;
+	}
 
-						try
-						{
-							sync.wait(dt);
-						}
-						catch (InterruptedException e)
-						{
-							break;
-						}
-					}
-				}
-				image.setLocation(image.getX(), finalY);
-				innerBoard.repaint();
+	/**
+	 * @return The column of the blank cell
+	 */
+	public int getBlankCol()
+	{
+		return blankCol;
+	}
 
-				puzzle.setBusy(false);
-				synchronized (puzzle.getMoveSync())
-				{
-					puzzle.getMoveSync().notify();
-				}
-			}
-		}
+	/**
+	 * Moves the tile in one cell into the blank cell next to it on the board and
+	 * starts sliding it there
+	 * 
+	 * @param cells     The cells the tile moves from and to (fromRow, fromCol,
+	 *                  toRow, toCol)
+	 * @param duration  The time (in milliseconds) for the tile to slide
+	 * @param startTime The time (from System.nanoTime()) at which the tile starts
+	 *                  to slide
+	 * @return A future that is completed when the tile has stopped
+	 */
+	private CompletableFuture<Void> slideTile(int[] cells, int duration, long startTime)
+	{
+		canvas.moveTile(cells[0], cells[1], cells[2], cells[3]);
+		return AnimationEngine.getInstance().slide(canvas, cells[2], cells[3], duration, startTime);
 	}
 }
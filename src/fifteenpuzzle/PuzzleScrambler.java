@@ -1,110 +1,432 @@
 package fifteenpuzzle;
 
-import java.util.ArrayList;
-import java.util.LinkedList;
-import java.util.Random;
+import java.io.IOException;
+import java.util.SplittableRandom;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
 
 public class PuzzleScrambler
 {
 	public static char ROW_SEPARATOR = '/';
+	public static final int NO_LENGTH_LIMIT = -1;
+	private static final int NO_COUNT = -1; // No repeat count after a move in run-length notation
+	public static final int MAX_COUNT = 10000; // Largest repeat count accepted in run-length notation
 
 	public static int[][] generateScrambleState(int numRows, int numCols)
 	{
-		Random rgen = new Random();
-		int[][] values;
-		int randIndex;
+		return generateScrambleState(new SplittableRandom(), numRows, numCols);
+	}
 
-		do
-		{
-			values = new int[numRows][numCols];
-			ArrayList<Integer> availableValues = new ArrayList<>();
-			for (int i = 1; i < numRows * numCols; i++)
-				availableValues.add(i);
+	/**
+	 * Generates a uniformly random solvable state other than the solved state,
+	 * with the blank in the bottom right
+	 * 
+	 * @param rgen    The random number generator to use
+	 * @param numRows The number of rows in the puzzle
+	 * @param numCols The number of columns in the puzzle
+	 * @return A 2-D int array with the values of all tiles (and
+	 *         Puzzle.BLANK_TILE for the blank tile)
+	 */
+	public static int[][] generateScrambleState(SplittableRandom rgen, int numRows, int numCols)
+	{
+		int[] cells = new int[numRows * numCols];
+		shuffleState(rgen, cells, 0, cells.length);
 
-			for (int r = 0; r < numRows; r++)
-			{
-				for (int c = 0; c < numCols; c++)
-				{
-					if (r == numRows - 1 && c == numCols - 1)
-					{
-						values[r][c] = Puzzle.BLANK_TILE;
-					}
-					else
-					{
-						randIndex = rgen.nextInt(availableValues.size());
-						values[r][c] = availableValues.get(randIndex);
-						availableValues.remove(randIndex);
-					}
-				}
-			}
+		int[][] values = new int[numRows][numCols];
+		for (int r = 0; r < numRows; r++)
+			System.arraycopy(cells, r * numCols, values[r], 0, numCols);
+		return values;
+	}
+
+	/**
+	 * Generates the scramble state with the given index in the stream of states
+	 * for the given seed and puzzle shape. The same arguments always give the same
+	 * state, and each index is generated on its own, so any scramble in the stream
+	 * can be reproduced (or checked) without generating the ones before it.
+	 * 
+	 * @param seed    The seed of the stream
+	 * @param index   The index of the state in the stream
+	 * @param numRows The number of rows in the puzzle
+	 * @param numCols The number of columns in the puzzle
+	 * @return A 2-D int array with the values of all tiles (and
+	 *         Puzzle.BLANK_TILE for the blank tile)
+	 */
+	public static int[][] generateScrambleState(long seed, long index, int numRows, int numCols)
+	{
+		return generateScrambleState(new SplittableRandom(mix(seed, index, numRows, numCols)), numRows, numCols);
+	}
+
+	/**
+	 * Gives the states with indices fromIndex (inclusive) to toIndex (exclusive)
+	 * in the stream for the given seed and shape (see
+	 * generateScrambleState(long, long, int, int) ). The stream can be split, e.g.
+	 * to generate the states in parallel, without changing them.
+	 * 
+	 * @param seed      The seed of the stream
+	 * @param numRows   The number of rows in the puzzle
+	 * @param numCols   The number of columns in the puzzle
+	 * @param fromIndex The index of the first state
+	 * @param toIndex   The index after the last state
+	 * @return The states, in order of index
+	 */
+	public static Stream<int[][]> scrambleStates(long seed, int numRows, int numCols, long fromIndex, long toIndex)
+	{
+		return LongStream.range(fromIndex, toIndex).mapToObj(index -> generateScrambleState(seed, index, numRows, numCols));
+	}
+
+	/**
+	 * Combines a seed, index and puzzle shape into the seed of a single random
+	 * number generator (using the SplitMix64 finalizer, so that nearby indices
+	 * give unrelated seeds)
+	 */
+	private static long mix(long seed, long index, int numRows, int numCols)
+	{
+		long z = seed ^ ((long) numRows << 56) ^ ((long) numCols << 48);
+		z += (index + 1) * 0x9E3779B97F4A7C15L;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+	/**
+	 * Fills the given array with as many random states as fit in it (see
+	 * generateScrambleState), one after the other. Each state takes numRows *
+	 * numCols entries, in row-major order. Nothing is allocated, so this can be
+	 * used to generate states in bulk.
+	 * 
+	 * @param rgen    The random number generator to use
+	 * @param numRows The number of rows in the puzzle
+	 * @param numCols The number of columns in the puzzle
+	 * @param dest    The array to fill
+	 * @return The number of states written
+	 */
+	public static int generateScrambleStates(SplittableRandom rgen, int numRows, int numCols, int[] dest)
+	{
+		int numCells = numRows * numCols;
+		int numStates = dest.length / numCells;
+
+		for (int i = 0; i < numStates; i++)
+			shuffleState(rgen, dest, i * numCells, numCells);
+
+		return numStates;
+	}
+
+	/**
+	 * Writes a random state to cells[offset] to cells[offset + numCells - 1]. The
+	 * state is uniformly random among the solvable states other than the solved
+	 * one, which is not a scramble: if the shuffle gives the solved state (which
+	 * happens with probability 2 / (numCells - 1)!), it is simply shuffled again.
+	 */
+	private static void shuffleState(SplittableRandom rgen, int[] cells, int offset, int numCells)
+	{
+		shuffleTiles(rgen, cells, offset, numCells);
+		while (isSolved(cells, offset, numCells))
+			shuffleTiles(rgen, cells, offset, numCells);
+	}
+
+	/**
+	 * Writes a uniformly random solvable state (including the solved one) to
+	 * cells[offset] to cells[offset + numCells - 1]. The tiles are shuffled with a
+	 * Fisher-Yates shuffle, keeping track of the parity of the permutation. Since
+	 * the blank stays in the bottom right, the state is solvable exactly when the
+	 * permutation is even, so an odd permutation is fixed by swapping the first
+	 * two tiles.
+	 */
+	private static void shuffleTiles(SplittableRandom rgen, int[] cells, int offset, int numCells)
+	{
+		int numTiles = numCells - 1;
+		for (int i = 0; i < numTiles; i++)
+			cells[offset + i] = i + 1;
+		cells[offset + numTiles] = Puzzle.BLANK_TILE;
 
-			// If the puzzle is not solvable, swap the first two tiles
-			if (!PuzzleSolver.isSolvable(values))
+		boolean odd = false;
+		for (int i = numTiles - 1; i > 0; i--)
+		{
+			int j = rgen.nextInt(i + 1);
+			if (j != i)
 			{
-				int temp = values[0][0];
-				values[0][0] = values[0][1];
-				values[0][1] = temp;
+				int temp = cells[offset + i];
+				cells[offset + i] = cells[offset + j];
+				cells[offset + j] = temp;
+				odd = !odd;
 			}
-		} while (PuzzleSolver.isSolved(values));
+		}
 
-		return values;
+		if (odd)
+		{
+			int temp = cells[offset];
+			cells[offset] = cells[offset + 1];
+			cells[offset + 1] = temp;
+		}
+	}
+
+	/**
+	 * @return TRUE if cells[offset] to cells[offset + numCells - 1] hold the
+	 *         solved state
+	 */
+	private static boolean isSolved(int[] cells, int offset, int numCells)
+	{
+		for (int i = 0; i < numCells - 1; i++)
+		{
+			if (cells[offset + i] != i + 1)
+				return false;
+		}
+		return true;
 	}
 
 	// TODO Take current state of puzzle into account?
-	public static LinkedList<Move> generateScrambleSequence(int numRows, int numCols)
+	public static MoveSequence generateScrambleSequence(int numRows, int numCols)
+	{
+		return generateScramble(numRows, numCols, NO_LENGTH_LIMIT).getSequence();
+	}
+
+	/**
+	 * Generates a uniformly random scramble state and a sequence of moves leading
+	 * to it from the solved state. The sequence is the reverse of a solution found
+	 * by ConstructiveSolver, so it is quick to generate for any puzzle size but is
+	 * not the shortest one.
+	 * 
+	 * @param numRows   The number of rows in the puzzle
+	 * @param numCols   The number of columns in the puzzle
+	 * @param maxLength The maximum length of the sequence (or NO_LENGTH_LIMIT). If
+	 *                  the sequence is longer, the scramble is returned without it.
+	 * @return The scramble
+	 */
+	public static Scramble generateScramble(int numRows, int numCols, int maxLength)
 	{
-		int[][] scrambleState = generateScrambleState(numRows, numCols);
+		return scrambleFor(generateScrambleState(numRows, numCols), maxLength);
+	}
+
+	/**
+	 * Finds a sequence of moves leading from the solved state to the given state
+	 * (see generateScramble).
+	 * 
+	 * @param scrambleState A 2-D int array with the values of all tiles (and
+	 *                      Puzzle.BLANK_TILE for the blank tile)
+	 * @param maxLength     The maximum length of the sequence (or
+	 *                      NO_LENGTH_LIMIT). If the sequence is longer, the
+	 *                      scramble is returned without it.
+	 * @return The scramble
+	 */
+	public static Scramble scrambleFor(int[][] scrambleState, int maxLength)
+	{
+		MoveSequence solution = new MoveSequence();
+		ConstructiveSolver.solve(scrambleState, solution::add);
+		solution = simplify(solution);
+		if (maxLength != NO_LENGTH_LIMIT && solution.size() > maxLength)
+			return new Scramble(scrambleState, null);
 
-		LinkedList<Move> solution = PuzzleSolver.solve(scrambleState);
-		return reversedSequence(solution);
+		return new Scramble(scrambleState, reversedSequence(solution));
 	}
 
-	public static LinkedList<Move> reversedSequence(LinkedList<Move> sequence)
+	/**
+	 * @param sequence A sequence of moves
+	 * @return The moves that undo the given sequence. This is a view of the given
+	 *         sequence, so it takes constant time.
+	 */
+	public static MoveSequence reversedSequence(MoveSequence sequence)
 	{
-		LinkedList<Move> out = new LinkedList<Move>();
+		return sequence.inverse();
+	}
 
-		for (int i = sequence.size() - 1; i >= 0; i--)
+	/**
+	 * Removes every pair of moves that undo each other (e.g. "L R" or "U L R D"),
+	 * in a single pass: each move either cancels the last move kept so far or is
+	 * kept itself.
+	 * 
+	 * The simplified sequence has the same effect as the original one as long as
+	 * every move in the original one can be made. A move that pushes the blank
+	 * into the edge does nothing, so cancelling it against the next move would
+	 * change the result; use the other simplify() for sequences that may contain
+	 * such moves.
+	 * 
+	 * @param sequence The sequence to simplify
+	 * @return A new sequence without any moves that cancel out
+	 */
+	public static MoveSequence simplify(MoveSequence sequence)
+	{
+		MoveSequence out = new MoveSequence();
+
+		for (Move m : sequence)
 		{
-			out.add(sequence.get(i).inverse());
+			if (!out.isEmpty() && out.getLast() == m.inverse())
+				out.removeLast();
+			else
+				out.add(m);
 		}
 
 		return out;
 	}
 
-	public static LinkedList<Move> stringToSequence(String str)
+	/**
+	 * Removes the moves that cannot be made (because they would push the blank
+	 * into the edge of the board) and every pair of moves that undo each other,
+	 * so that the simplified sequence ends in the same state as the original one
+	 * when applied from a state with the blank in the given cell
+	 * 
+	 * @param sequence The sequence to simplify
+	 * @param numRows  The number of rows in the puzzle
+	 * @param numCols  The number of columns in the puzzle
+	 * @param blankRow The row of the blank in the state the sequence is applied to
+	 * @param blankCol The column of the blank in the state the sequence is applied
+	 *                 to
+	 * @return A new sequence of moves that can all be made, without any moves that
+	 *         cancel out
+	 */
+	public static MoveSequence simplify(MoveSequence sequence, int numRows, int numCols, int blankRow, int blankCol)
 	{
-		String tempStr = str.replace(" ", "").replace("\n", "").toUpperCase();
-		LinkedList<Move> sequence = new LinkedList<Move>();
+		MoveSequence legal = new MoveSequence();
 
-		for (char c : tempStr.toCharArray())
+		for (Move m : sequence)
 		{
-			Move m = Move.parseMove(c);
-			if (m == null)
+			int row = blankRow;
+			int col = blankCol;
+			switch (m)
+			{
+				case LEFT:
+					col++;
+					break;
+				case RIGHT:
+					col--;
+					break;
+				case UP:
+					row++;
+					break;
+				case DOWN:
+					row--;
+					break;
+			}
+
+			if (row >= 0 && row < numRows && col >= 0 && col < numCols)
+			{
+				legal.add(m);
+				blankRow = row;
+				blankCol = col;
+			}
+		}
+
+		return simplify(legal);
+	}
+
+	/**
+	 * Reads a sequence of moves written as letters (e.g. "LURD"). A letter can be
+	 * followed by a number (from 1 to MAX_COUNT) to repeat it (e.g. "L3 U2" is
+	 * the same as "LLLUU"). Spaces and newlines are ignored.
+	 * 
+	 * @param str The string to be parsed
+	 * @return The sequence, or NULL if the string contains anything other than
+	 *         moves and repeat counts or a count is out of range
+	 */
+	public static MoveSequence stringToSequence(String str)
+	{
+		MoveSequence sequence = new MoveSequence();
+		Move last = null;
+		int count = NO_COUNT;
+
+		for (int i = 0; i < str.length(); i++)
+		{
+			char c = str.charAt(i);
+			if (c == ' ' || c == '\n')
+				continue;
+
+			if (c >= '0' && c <= '9')
+			{
+				// A count must follow a move and be at most MAX_COUNT
+				if (last == null)
+					return null;
+				if (count == NO_COUNT)
+					count = 0;
+				count = 10 * count + (c - '0');
+				if (count > MAX_COUNT)
+					return null;
+				continue;
+			}
+
+			if (last != null && !addRun(sequence, last, count))
+				return null;
+
+			last = Move.parseMove(c);
+			count = NO_COUNT;
+			if (last == null)
 				return null;
-			else
-				sequence.add(m);
 		}
 
+		if (last != null && !addRun(sequence, last, count))
+			return null;
+
 		return sequence;
 	}
 
-	public static String sequenceToString(LinkedList<Move> sequence, int perRow)
+	/**
+	 * Adds a move count times, or once if the count is NO_COUNT
+	 * 
+	 * @return FALSE if the count is 0
+	 */
+	private static boolean addRun(MoveSequence sequence, Move m, int count)
 	{
-		if (sequence.size() == 0 || sequence == null)
+		if (count == 0)
+			return false;
+
+		for (int i = 0; i < (count == NO_COUNT ? 1 : count); i++)
+			sequence.add(m);
+		return true;
+	}
+
+	/**
+	 * Writes a sequence of moves as letters separated by spaces, starting a new
+	 * line every perRow moves
+	 * 
+	 * @param sequence The sequence to write
+	 * @param perRow   The number of moves per line
+	 * @return The sequence as text
+	 */
+	public static String sequenceToString(MoveSequence sequence, int perRow)
+	{
+		return sequenceToString(sequence, perRow, false);
+	}
+
+	/**
+	 * Writes a sequence of moves as letters separated by spaces, starting a new
+	 * line every perRow tokens. With run-length notation, repeated moves are
+	 * written once with a count (e.g. "L3 U2" instead of "L L L U U"), which
+	 * stringToSequence can read back.
+	 * 
+	 * @param sequence  The sequence to write
+	 * @param perRow    The number of tokens per line
+	 * @param runLength Whether to use run-length notation
+	 * @return The sequence as text
+	 */
+	public static String sequenceToString(MoveSequence sequence, int perRow, boolean runLength)
+	{
+		if (sequence == null || sequence.isEmpty())
 			return "";
 
-		String str = "";
+		StringBuilder str = new StringBuilder(sequence.size() * 2 + sequence.size() / perRow);
+		int numTokens = 0;
+		int i = 0;
 
-		for (int i = 0; i < sequence.size(); i++)
+		while (i < sequence.size())
 		{
-			if (i % perRow == 0)
+			Move m = sequence.get(i);
+			int runEnd = i + 1;
+			if (runLength)
 			{
-				str += "\n";
+				while (runEnd < sequence.size() && sequence.get(runEnd) == m)
+					runEnd++;
 			}
-			str += sequence.get(i).str + " ";
+
+			if (numTokens > 0 && numTokens % perRow == 0)
+				str.append('\n');
+			str.append(m.str);
+			if (runEnd - i > 1)
+				str.append(runEnd - i);
+			str.append(' ');
+
+			numTokens++;
+			i = runEnd;
 		}
 
-		return str.substring(1);
+		return str.toString();
 	}
 
 	/**
@@ -120,43 +442,13 @@ public class PuzzleScrambler
 	 */
 	public static int[][] stringToState(String str, int numRows, int numCols)
 	{
-		int[][] out = new int[numRows][numCols];
-		// Make a list of numbers that haven't been added to the puzzle yet
-		ArrayList<String> validNumbers = new ArrayList<String>();
-		for (int i = 1; i < numRows * numCols; i++)
-		{
-			validNumbers.add(Integer.toString(i));
-		}
-		validNumbers.add(Integer.toString(Puzzle.BLANK_TILE));
-
-		// Treat newline characters the same as '/' (both indicate a row break)
-		String tempStr = str.replace('\n', '/');
-		String[] rows = tempStr.split("/");
-		if (rows.length != numRows)
+		int[] cells = new int[numRows * numCols];
+		if (!new StateCodec(numRows, numCols).parse(str, cells))
 			return null;
-		else
-		{
-			for (int r = 0; r < numRows; r++)
-			{
-				String[] cols = rows[r].strip().split(" ");
-				if (cols.length != numCols)
-					return null;
-				else
-				{
-					for (int c = 0; c < numCols; c++)
-					{
-						if (validNumbers.contains(cols[c]))
-						{
-							out[r][c] = Integer.parseInt(cols[c]);
-							validNumbers.remove(cols[c]);
-						}
-						else
-							return null;
-					}
-				}
-			}
-		}
 
+		int[][] out = new int[numRows][numCols];
+		for (int r = 0; r < numRows; r++)
+			System.arraycopy(cells, r * numCols, out[r], 0, numCols);
 		return out;
 	}
 
@@ -170,21 +462,17 @@ public class PuzzleScrambler
 	 */
 	public static String stateToString(int[][] state)
 	{
-		int numRows = state.length;
-		int numCols = state[0].length;
-		String out = "";
-
-		for (int r = 0; r < numRows; r++)
+		StringBuilder out = new StringBuilder(state.length * state[0].length * 3);
+		try
 		{
-			for (int c = 0; c < numCols; c++)
-			{
-				out += Integer.toString(state[r][c]) + " ";
-			}
-			out += "/ ";
+			StateCodec.write(state, out);
 		}
-
-		// Return everything except the last "/ "
-		return out.substring(0, out.length() - 3);
+		catch (IOException e)
+		{
+			// Appending to a StringBuilder cannot fail
+			throw new IllegalStateException(e);
+		}
+		return out.toString();
 	}
 
 	public static int[][] cloneArray(int[][] values)
@@ -197,9 +485,50 @@ public class PuzzleScrambler
 		return copiedValues;
 	}
 
-	public static int[][] applySequence(int[][] currentState, LinkedList<Move> sequence)
+	public static int[][] applySequence(int[][] currentState, MoveSequence sequence)
 	{
-		int[][] copiedState = cloneArray(currentState);
+		return applySequenceInPlace(cloneArray(currentState), sequence);
+	}
+
+	/**
+	 * Applies the given sequence to a copy of the given state the given number of
+	 * times. If the sequence brings the blank back to where it started, it is
+	 * compiled once (see CompiledSequence) so that this takes about as long as
+	 * applying it once, however many repetitions there are.
+	 *
+	 * @param currentState A 2-D int array with the tile values of the puzzle
+	 * @param sequence     The moves to apply
+	 * @param times        The number of repetitions (negative to undo the
+	 *                     sequence that many times)
+	 * @return A new 2-D int array with the tile values after all repetitions
+	 */
+	public static int[][] applySequence(int[][] currentState, MoveSequence sequence, long times)
+	{
+		int[] blankCell = getBlankCell(currentState);
+		CompiledSequence compiled = CompiledSequence.compile(sequence, currentState.length, currentState[0].length, blankCell[0], blankCell[1]);
+		if (compiled.getBlankRowShift() == 0 && compiled.getBlankColShift() == 0)
+			return compiled.power(times).apply(currentState);
+
+		// The blank moves, so each repetition starts somewhere else
+		int[][] state = cloneArray(currentState);
+		MoveSequence repeated = times < 0 ? sequence.inverse() : sequence;
+		for (long i = 0; i < Math.abs(times); i++)
+			applySequenceInPlace(state, repeated);
+		return state;
+	}
+
+	/**
+	 * Applies the given sequence directly to the given state, without making a
+	 * copy
+	 * 
+	 * @param state    A 2-D int array with the tile values of the puzzle, which is
+	 *                 modified
+	 * @param sequence The moves to apply
+	 * @return The given state array
+	 */
+	public static int[][] applySequenceInPlace(int[][] state, MoveSequence sequence)
+	{
+		int[][] copiedState = state;
 		int[] blankCell = getBlankCell(copiedState);
 
 		for (Move m : sequence)
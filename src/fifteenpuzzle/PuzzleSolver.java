@@ -1,7 +1,7 @@
 package fifteenpuzzle;
 
 import java.util.ArrayList;
-import java.util.LinkedList;
+import java.util.function.Consumer;
 
 public class PuzzleSolver
 {
@@ -52,7 +52,7 @@ public class PuzzleSolver
 			{
 				while ((val = copiedValues[r][c]) != (r * numCols + c + 1))
 				{
-					// The blank tile is always at the bottom right, so this is the end of the algorithm
+					// The blank tile will be swapped into place as the other tiles are sorted
 					if (val == Puzzle.BLANK_TILE)
 						break;
 
@@ -67,7 +67,12 @@ public class PuzzleSolver
 			}
 		}
 
-		return swaps % 2 == 0;
+		// Every move swaps the blank with a tile, so the parity of the swaps must match the parity of the
+		// blank's distance from the bottom right
+		int[] blankCell = PuzzleScrambler.getBlankCell(pattern);
+		int blankDistance = (numRows - 1 - blankCell[0]) + (numCols - 1 - blankCell[1]);
+
+		return (swaps + blankDistance) % 2 == 0;
 	}
 
 	public static boolean isSolved(int[][] values)
@@ -102,14 +107,16 @@ public class PuzzleSolver
 		}
 	}
 
-	public static LinkedList<Move> solve(int[][] values)
+	public static MoveSequence solve(int[][] values)
 	{
 		if (!isSolvable(values))
 			return null;
 
+		// Look the database up once rather than for every state
+		PatternDatabase pdb = PatternDatabase.forShape(values.length, values[0].length);
 		PriorityQueue queue = new PriorityQueue();
 		State out;
-		queue.enqueue(new State(values, 0, null, null));
+		queue.enqueue(new State(values, 0, null, null, pdb));
 
 		// Dequeue/enqueue until the solved state is reached
 		while (true)
@@ -120,16 +127,75 @@ public class PuzzleSolver
 		}
 
 		// Trace back states to the beginning
-		LinkedList<Move> solution = new LinkedList<Move>();
+		MoveSequence solution = new MoveSequence();
 		while (true)
 		{
 			if (out.prevMove == null)
 				break;
-			solution.add(0, out.prevMove);
+			solution.add(out.prevMove);
 			out = out.prevState;
 		}
 
-		return solution;
+		return solution.reverse();
+	}
+
+	/**
+	 * Solves the puzzle in phases (see ConstructiveSolver), sending each move to
+	 * the consumer as soon as it is found so that it can be used before the rest
+	 * of the solution is known. The solution is not necessarily the shortest one,
+	 * but this works quickly for puzzles of any size.
+	 * 
+	 * @param values   A 2-D int array with the values of all tiles (and
+	 *                 Puzzle.BLANK_TILE for the blank tile)
+	 * @param consumer The consumer to which the moves are sent, in order
+	 * @return TRUE if the puzzle was solved and FALSE if it is not solvable
+	 */
+	public static boolean solveStreaming(int[][] values, Consumer<Move> consumer)
+	{
+		return ConstructiveSolver.solve(values, consumer);
+	}
+
+	/**
+	 * Gives a lower bound on the number of moves needed to solve the given board.
+	 * The pattern database for the board's shape is used if there is one;
+	 * otherwise, this is the Manhattan distance.
+	 * 
+	 * @param board A 2-D int array with the values of all tiles (and
+	 *              Puzzle.BLANK_TILE for the blank tile)
+	 * @return A lower bound on the length of the solution
+	 */
+	public static int estimate(int[][] board)
+	{
+		return estimate(board, PatternDatabase.forShape(board.length, board[0].length));
+	}
+
+	/**
+	 * Gives a lower bound on the number of moves needed to solve the given board,
+	 * using the given pattern database (or the Manhattan distance if it is NULL)
+	 */
+	private static int estimate(int[][] board, PatternDatabase pdb)
+	{
+		int numRows = board.length;
+		int numCols = board[0].length;
+
+		if (pdb != null)
+			return pdb.estimate(board);
+
+		int sum = 0;
+
+		for (int r = 0; r < numRows; r++)
+		{
+			for (int c = 0; c < numCols; c++)
+			{
+				if (board[r][c] == Puzzle.BLANK_TILE)
+					continue;
+
+				int[] homeCell = getHomeCell(board[r][c], numRows, numCols);
+				sum += Math.abs(r - homeCell[0]) + Math.abs(c - homeCell[1]);
+			}
+		}
+
+		return sum;
 	}
 
 	protected static void printBoard(int[][] board, int indent)
@@ -157,13 +223,15 @@ public class PuzzleSolver
 		int numRows;
 		int numCols;
 		int priority;
+		PatternDatabase pdb;
 
-		private State(int[][] board, int numMoves, Move prevMove, State prevState)
+		private State(int[][] board, int numMoves, Move prevMove, State prevState, PatternDatabase pdb)
 		{
 			this.board = board;
 			this.numMoves = numMoves;
 			this.prevMove = prevMove;
 			this.prevState = prevState;
+			this.pdb = pdb;
 
 			numRows = board.length;
 			numCols = board[0].length;
@@ -176,21 +244,7 @@ public class PuzzleSolver
 			if (priority != -1)
 				return priority;
 
-			int sum = 0;
-
-			for (int r = 0; r < numRows; r++)
-			{
-				for (int c = 0; c < numCols; c++)
-				{
-					if (board[r][c] == Puzzle.BLANK_TILE)
-						continue;
-
-					int[] homeCell = getHomeCell(board[r][c], numRows, numCols);
-					sum += Math.abs(r - homeCell[0]) + Math.abs(c - homeCell[1]);
-				}
-			}
-
-			priority = numMoves + sum;
+			priority = numMoves + estimate(board, pdb);
 			return priority;
 		}
 
@@ -201,16 +255,16 @@ public class PuzzleSolver
 
 			// Add left move (if valid)
 			if (blankCell[1] != numCols - 1 && prevMove != Move.RIGHT)
-				nextStates.add(new State(PuzzleScrambler.applyMove(board, Move.LEFT), numMoves + 1, Move.LEFT, this));
+				nextStates.add(new State(PuzzleScrambler.applyMove(board, Move.LEFT), numMoves + 1, Move.LEFT, this, pdb));
 			// Add right move (if valid)
 			if (blankCell[1] != 0 && prevMove != Move.LEFT)
-				nextStates.add(new State(PuzzleScrambler.applyMove(board, Move.RIGHT), numMoves + 1, Move.RIGHT, this));
+				nextStates.add(new State(PuzzleScrambler.applyMove(board, Move.RIGHT), numMoves + 1, Move.RIGHT, this, pdb));
 			// Add down move (if valid)
 			if (blankCell[0] != 0 && prevMove != Move.UP)
-				nextStates.add(new State(PuzzleScrambler.applyMove(board, Move.DOWN), numMoves + 1, Move.DOWN, this));
+				nextStates.add(new State(PuzzleScrambler.applyMove(board, Move.DOWN), numMoves + 1, Move.DOWN, this, pdb));
 			// Add up move (if valid)
 			if (blankCell[0] != numRows - 1 && prevMove != Move.DOWN)
-				nextStates.add(new State(PuzzleScrambler.applyMove(board, Move.UP), numMoves + 1, Move.UP, this));
+				nextStates.add(new State(PuzzleScrambler.applyMove(board, Move.UP), numMoves + 1, Move.UP, this, pdb));
 			return nextStates;
 		}
 	}
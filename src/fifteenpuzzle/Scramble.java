@@ -0,0 +1,81 @@
+package fifteenpuzzle;
+
+
+/**
+ * A scrambled puzzle state, together with a sequence of moves that leads to it
+ * from the solved state
+ */
+public class Scramble
+{
+	public static final int UNKNOWN_LENGTH = -1;
+	public static final long NO_ID = -1;
+
+	private int[][] state;
+	private MoveSequence sequence;
+	private int optimalLength;
+	private long id;
+
+	/**
+	 * @param state    A 2-D int array with the values of all tiles (and
+	 *                 Puzzle.BLANK_TILE for the blank tile)
+	 * @param sequence The moves that lead from the solved state to the given
+	 *                 state, or NULL if they are not known
+	 */
+	public Scramble(int[][] state, MoveSequence sequence)
+	{
+		this(state, sequence, UNKNOWN_LENGTH);
+	}
+
+	/**
+	 * @param state         A 2-D int array with the values of all tiles (and
+	 *                      Puzzle.BLANK_TILE for the blank tile)
+	 * @param sequence      The moves that lead from the solved state to the given
+	 *                      state, or NULL if they are not known
+	 * @param optimalLength The length of the shortest solution, or UNKNOWN_LENGTH
+	 */
+	public Scramble(int[][] state, MoveSequence sequence, int optimalLength)
+	{
+		this.state = state;
+		this.sequence = sequence;
+		this.optimalLength = optimalLength;
+		this.id = NO_ID;
+	}
+
+	public int[][] getState()
+	{
+		return state;
+	}
+
+	/**
+	 * @return The moves that lead from the solved state to the scrambled state, or
+	 *         NULL if they are not known (e.g. because they were longer than the
+	 *         length cap when the scramble was generated)
+	 */
+	public MoveSequence getSequence()
+	{
+		return sequence;
+	}
+
+	/**
+	 * @return The length of the shortest solution, or UNKNOWN_LENGTH if it has not
+	 *         been computed
+	 */
+	public int getOptimalLength()
+	{
+		return optimalLength;
+	}
+
+	/**
+	 * @return The ID of the scramble in the scramble file, or NO_ID if it has not
+	 *         been saved
+	 */
+	protected long getId()
+	{
+		return id;
+	}
+
+	protected void setId(long id)
+	{
+		this.id = id;
+	}
+}
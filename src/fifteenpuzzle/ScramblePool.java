@@ -0,0 +1,131 @@
+package fifteenpuzzle;
+
+import java.util.HashMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Keeps a few scrambles for one puzzle shape ready in advance, so that starting
+ * a solve does not have to wait for one to be generated. Low-priority
+ * background threads keep the pool full: as soon as a scramble is taken, a new
+ * one is generated to replace it.
+ *
+ * The scrambles are saved by ScrambleStore, so the ones that are still in the
+ * pool when the program exits are used first in the next session.
+ */
+public class ScramblePool
+{
+	private static final HashMap<String, ScramblePool> pools = new HashMap<String, ScramblePool>();
+
+	private int numRows;
+	private int numCols;
+	private BlockingQueue<Scramble> queue;
+
+	private ScramblePool(int numRows, int numCols)
+	{
+		this.numRows = numRows;
+		this.numCols = numCols;
+		this.queue = new ArrayBlockingQueue<Scramble>(Math.max(Settings.SCRAMBLE_POOL_SIZE, 1));
+
+		for (int i = 0; i < Math.max(Settings.SCRAMBLE_POOL_THREADS, 1); i++)
+		{
+			Thread producerThread = new Thread(new Runnable()
+			{
+				public void run()
+				{
+					produce();
+				}
+			}, "Scramble pool " + numRows + "x" + numCols + " #" + i);
+			producerThread.setDaemon(true);
+			producerThread.setPriority(Thread.MIN_PRIORITY);
+			producerThread.start();
+		}
+	}
+
+	/**
+	 * Gets the scramble pool for puzzles with the given dimensions, creating it
+	 * (and starting to fill it) the first time it is requested
+	 *
+	 * @param numRows The number of rows
+	 * @param numCols The number of columns
+	 * @return The scramble pool
+	 */
+	public static synchronized ScramblePool forShape(int numRows, int numCols)
+	{
+		String key = numRows + "x" + numCols;
+		ScramblePool pool = pools.get(key);
+		if (pool == null)
+		{
+			pool = new ScramblePool(numRows, numCols);
+			pools.put(key, pool);
+		}
+		return pool;
+	}
+
+	/**
+	 * Takes a scramble from the pool. This only has to wait if the pool is empty,
+	 * which can happen if scrambles are taken faster than they are generated.
+	 *
+	 * This method may include a pause, so it must not be called directly from the
+	 * EDT.
+	 *
+	 * @return A scramble, with its sequence if it can be animated in
+	 *         Settings.MAX_SCRAMBLE_TIME
+	 * @throws InterruptedException If the thread is interrupted while waiting
+	 */
+	public Scramble take() throws InterruptedException
+	{
+		Scramble scramble = queue.take();
+		ScrambleStore.getInstance().markUsed(scramble);
+		return scramble;
+	}
+
+	/**
+	 * @return The number of scrambles that are ready
+	 */
+	public int size()
+	{
+		return queue.size();
+	}
+
+	/**
+	 * Fills the pool with the scrambles saved in previous sessions, then generates
+	 * scrambles forever, waiting whenever the pool is full
+	 */
+	private void produce()
+	{
+		ScrambleStore store = ScrambleStore.getInstance();
+
+		try
+		{
+			for (Scramble scramble : store.takeStored(numRows, numCols))
+				queue.put(scramble);
+
+			while (true)
+			{
+				Scramble scramble = generate();
+				store.add(scramble);
+				queue.put(scramble);
+			}
+		}
+		catch (InterruptedException e)
+		{
+			// Stop producing
+		}
+	}
+
+	/**
+	 * Generates a new scramble. For puzzles that are small enough, the length of
+	 * the shortest solution is worked out as well, since there is time to spare in
+	 * the background.
+	 */
+	private Scramble generate()
+	{
+		Scramble scramble = PuzzleScrambler.generateScramble(numRows, numCols, Settings.MAX_SCRAMBLE_TIME / Settings.SCRAMBLE_SPEED);
+		if (numRows * numCols > Settings.MAX_OPTIMAL_SOLVE_SIZE)
+			return scramble;
+
+		int optimalLength = PuzzleSolver.solve(scramble.getState()).size();
+		return new Scramble(scramble.getState(), scramble.getSequence(), optimalLength);
+	}
+}
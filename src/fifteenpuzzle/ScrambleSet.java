@@ -0,0 +1,222 @@
+package fifteenpuzzle;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.stream.Collectors;
+
+/**
+ * A fixed list of scrambles generated from a seed, e.g. so that every
+ * competitor in an event gets the same scrambles. The scrambles are the first
+ * states of the stream for the seed (see PuzzleScrambler.scrambleStates), so
+ * anyone with the seed can check them afterwards.
+ *
+ * Sets are saved as text files with a short header followed by one scramble per
+ * line:
+ *
+ * <pre>
+ * Puzzle,4x4
+ * Seed,12345
+ * Count,5
+ * 1,12 3 8 1 / 6 ...
+ * </pre>
+ *
+ * Usage: ScrambleSet export rows cols seed count file | ScrambleSet verify file
+ */
+public class ScrambleSet
+{
+	public static final int MAX_COUNT = 100_000; // Largest number of scrambles accepted in a set file
+
+	private int numRows;
+	private int numCols;
+	private long seed;
+	private ArrayList<int[][]> states;
+
+	private ScrambleSet(int numRows, int numCols, long seed, ArrayList<int[][]> states)
+	{
+		this.numRows = numRows;
+		this.numCols = numCols;
+		this.seed = seed;
+		this.states = states;
+	}
+
+	public static void main(String[] args)
+	{
+		try
+		{
+			if (args.length == 6 && args[0].equals("export"))
+			{
+				int numRows = Integer.parseInt(args[1]);
+				int numCols = Integer.parseInt(args[2]);
+				long seed = Long.parseLong(args[3]);
+				int count = Integer.parseInt(args[4]);
+				File file = new File(args[5]);
+
+				generate(seed, numRows, numCols, count).save(file);
+				System.out.println("Wrote " + count + " " + numRows + "x" + numCols + " scrambles with seed " + seed + " to " + file);
+			}
+			else if (args.length == 2 && args[0].equals("verify"))
+			{
+				ScrambleSet set = load(new File(args[1]));
+				int mismatch = set.verify();
+				if (mismatch == -1)
+					System.out.println("All " + set.size() + " scrambles match seed " + set.seed);
+				else
+					System.out.println("Scramble " + (mismatch + 1) + " does not match seed " + set.seed);
+			}
+			else
+				System.out.println("Usage: ScrambleSet export rows cols seed count file | ScrambleSet verify file");
+		}
+		catch (IOException e)
+		{
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Generates the first count scrambles of the stream for the given seed and
+	 * shape
+	 *
+	 * @param seed    The seed
+	 * @param numRows The number of rows in the puzzle
+	 * @param numCols The number of columns in the puzzle
+	 * @param count   The number of scrambles
+	 * @return The scramble set
+	 */
+	public static ScrambleSet generate(long seed, int numRows, int numCols, int count)
+	{
+		ArrayList<int[][]> states = PuzzleScrambler.scrambleStates(seed, numRows, numCols, 0, count).collect(Collectors.toCollection(ArrayList::new));
+		return new ScrambleSet(numRows, numCols, seed, states);
+	}
+
+	/**
+	 * Reads a scramble set from the given file
+	 *
+	 * @param file The file written by save()
+	 * @return The scramble set
+	 * @throws IOException If the file cannot be read or is not a valid scramble
+	 *                     set (including one for a puzzle size the game does not
+	 *                     support, or with more than MAX_COUNT scrambles)
+	 */
+	public static ScrambleSet load(File file) throws IOException
+	{
+		try (BufferedReader in = new BufferedReader(new FileReader(file)))
+		{
+			String[] shape = readField(in, "Puzzle").split("x");
+			if (shape.length != 2)
+				throw new IOException("Invalid puzzle size in " + file);
+			int numRows = Integer.parseInt(shape[0]);
+			int numCols = Integer.parseInt(shape[1]);
+			if (numRows < Settings.MIN_ROWS || numRows > Settings.MAX_ROWS || numCols < Settings.MIN_COLS || numCols > Settings.MAX_COLS)
+				throw new IOException("Invalid puzzle size in " + file);
+			long seed = Long.parseLong(readField(in, "Seed"));
+			int count = Integer.parseInt(readField(in, "Count"));
+			if (count < 0 || count > MAX_COUNT)
+				throw new IOException("Invalid scramble count in " + file);
+
+			ArrayList<int[][]> states = new ArrayList<int[][]>();
+			StateCodec codec = new StateCodec(numRows, numCols);
+			int[] cells = new int[numRows * numCols];
+			for (int i = 0; i < count; i++)
+			{
+				String state = readField(in, Integer.toString(i + 1));
+				if (!codec.parse(state, cells))
+					throw new IOException("Invalid scramble " + (i + 1) + " in " + file);
+
+				int[][] values = new int[numRows][numCols];
+				for (int r = 0; r < numRows; r++)
+					System.arraycopy(cells, r * numCols, values[r], 0, numCols);
+				if (!PuzzleSolver.isSolvable(values))
+					throw new IOException("Invalid scramble " + (i + 1) + " in " + file);
+				states.add(values);
+			}
+
+			return new ScrambleSet(numRows, numCols, seed, states);
+		}
+		catch (NumberFormatException e)
+		{
+			throw new IOException("Invalid number in " + file, e);
+		}
+	}
+
+	/**
+	 * Reads a line of the form "name,value"
+	 *
+	 * @return The value
+	 */
+	private static String readField(BufferedReader in, String name) throws IOException
+	{
+		String line = in.readLine();
+		if (line == null || !line.startsWith(name + ","))
+			throw new IOException("Expected " + name + " in scramble set");
+		return line.substring(name.length() + 1);
+	}
+
+	/**
+	 * Writes the scramble set to the given file
+	 *
+	 * @param file The file to write
+	 * @throws IOException If the file cannot be written
+	 */
+	public void save(File file) throws IOException
+	{
+		try (BufferedWriter out = new BufferedWriter(new FileWriter(file)))
+		{
+			out.write("Puzzle," + numRows + "x" + numCols + "\n");
+			out.write("Seed," + seed + "\n");
+			out.write("Count," + states.size() + "\n");
+			for (int i = 0; i < states.size(); i++)
+			{
+				out.write(Integer.toString(i + 1));
+				out.write(',');
+				StateCodec.write(states.get(i), out);
+				out.write('\n');
+			}
+		}
+	}
+
+	/**
+	 * Checks that the scrambles are the ones generated from the seed
+	 *
+	 * @return The index of the first scramble that does not match, or -1 if they
+	 *         all match
+	 */
+	public int verify()
+	{
+		for (int i = 0; i < states.size(); i++)
+		{
+			if (!Arrays.deepEquals(states.get(i), PuzzleScrambler.generateScrambleState(seed, i, numRows, numCols)))
+				return i;
+		}
+		return -1;
+	}
+
+	public int getNumRows()
+	{
+		return numRows;
+	}
+
+	public int getNumCols()
+	{
+		return numCols;
+	}
+
+	public int size()
+	{
+		return states.size();
+	}
+
+	/**
+	 * @param index The index of the scramble (starting at 0)
+	 * @return A copy of the scramble state
+	 */
+	public int[][] getState(int index)
+	{
+		return PuzzleScrambler.cloneArray(states.get(index));
+	}
+}
@@ -0,0 +1,446 @@
+package fifteenpuzzle;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Saves the scrambles in the scramble pools to Settings.SCRAMBLE_FILE so that
+ * they can be used after a restart, and records which ones have been used so
+ * that none is ever given out twice.
+ *
+ * The file is append-only and made of two kinds of records: a scramble (with
+ * its ID, shape, packed state, optimal length and packed sequence) and a marker
+ * saying that the scramble with some ID has been used. It is read in the
+ * background the first time a pool asks for it, and rewritten without the used
+ * scrambles at that point. New scrambles are written by a single background
+ * thread, which periodically writes whatever records have piled up in one batch
+ * (and once more when the program exits). A used marker is written as soon as
+ * the scramble is taken, so even if the program is killed, a scramble that was
+ * given out is never loaded again.
+ */
+public class ScrambleStore
+{
+	private static final byte SCRAMBLE_RECORD = 1;
+	private static final byte USED_RECORD = 2;
+	private static final int NO_SEQUENCE = -1;
+	private static final long WRITE_INTERVAL = 500; // Time (in milliseconds) between batches of writes
+
+	private static ScrambleStore instance;
+
+	private File file;
+	private volatile boolean enabled;
+	private volatile boolean loaded;
+	private long nextId;
+	private HashMap<String, LinkedList<Scramble>> storedScrambles;
+	private LinkedBlockingQueue<byte[]> pendingRecords;
+
+	private ScrambleStore(File file)
+	{
+		this.file = file;
+		this.enabled = Settings.SAVE_SCRAMBLES && new File(Settings.HOME_DIR).isDirectory();
+		this.loaded = false;
+		this.nextId = 0;
+		this.storedScrambles = new HashMap<String, LinkedList<Scramble>>();
+		this.pendingRecords = new LinkedBlockingQueue<byte[]>();
+
+		Thread writerThread = new Thread(new Runnable()
+		{
+			public void run()
+			{
+				load();
+				if (enabled)
+					writeRecords();
+			}
+		}, "Scramble store");
+		writerThread.setDaemon(true);
+		writerThread.setPriority(Thread.MIN_PRIORITY);
+		writerThread.start();
+
+		// Write the last batch on exit, so that no new scramble is lost
+		Runtime.getRuntime().addShutdownHook(new Thread(new Runnable()
+		{
+			public void run()
+			{
+				if (enabled && loaded)
+					writePending();
+			}
+		}));
+	}
+
+	/**
+	 * Gets the scramble store, starting to read the scramble file in the
+	 * background the first time it is requested
+	 *
+	 * @return The scramble store
+	 */
+	public static synchronized ScrambleStore getInstance()
+	{
+		if (instance == null)
+			instance = new ScrambleStore(new File(Settings.SCRAMBLE_FILE));
+		return instance;
+	}
+
+	/**
+	 * Takes all the unused scrambles for the given shape that were saved in
+	 * previous sessions. Each one is only returned once.
+	 *
+	 * This method waits for the file to be read, so it must not be called directly
+	 * from the EDT.
+	 *
+	 * @param numRows The number of rows
+	 * @param numCols The number of columns
+	 * @return The saved scrambles (possibly none)
+	 * @throws InterruptedException If the thread is interrupted while waiting
+	 */
+	public synchronized LinkedList<Scramble> takeStored(int numRows, int numCols) throws InterruptedException
+	{
+		while (!loaded)
+			wait();
+
+		LinkedList<Scramble> out = storedScrambles.remove(numRows + "x" + numCols);
+		return out == null ? new LinkedList<Scramble>() : out;
+	}
+
+	/**
+	 * Saves the given scramble and gives it an ID. The scramble is written to the
+	 * file in the background.
+	 *
+	 * @param scramble The scramble to save
+	 */
+	public void add(Scramble scramble)
+	{
+		if (!enabled)
+			return;
+
+		synchronized (this)
+		{
+			scramble.setId(nextId++);
+		}
+		pendingRecords.add(scrambleRecord(scramble));
+	}
+
+	/**
+	 * Records that the given scramble has been used, so that it is not loaded
+	 * again in later sessions. The marker (and any records still waiting to be
+	 * written before it) is written to the file before this returns, unless the
+	 * file is still being read, in which case it is written with the first batch.
+	 *
+	 * @param scramble The scramble that was used
+	 */
+	public void markUsed(Scramble scramble)
+	{
+		if (!enabled || scramble.getId() == Scramble.NO_ID)
+			return;
+
+		ByteBuffer record = ByteBuffer.allocate(1 + Long.BYTES);
+		record.put(USED_RECORD);
+		record.putLong(scramble.getId());
+		pendingRecords.add(record.array());
+		if (loaded)
+			writePending();
+	}
+
+	/**
+	 * Reads the scramble file, keeping the scrambles that have not been used, and
+	 * rewrites it with only those scrambles if anything else was in it
+	 */
+	private void load()
+	{
+		LinkedHashMap<Long, Scramble> unused = new LinkedHashMap<Long, Scramble>();
+		long maxId = -1;
+		boolean needsRewrite = false;
+
+		if (enabled && file.exists())
+		{
+			try
+			{
+				ByteBuffer in = ByteBuffer.wrap(Files.readAllBytes(file.toPath()));
+				while (in.hasRemaining())
+				{
+					int start = in.position();
+					try
+					{
+						byte type = in.get();
+						if (type == SCRAMBLE_RECORD)
+						{
+							Scramble scramble = readScramble(in);
+							unused.put(scramble.getId(), scramble);
+							maxId = Math.max(maxId, scramble.getId());
+						}
+						else if (type == USED_RECORD)
+						{
+							unused.remove(in.getLong());
+							needsRewrite = true;
+						}
+						else
+						{
+							needsRewrite = true;
+							break;
+						}
+					}
+					catch (BufferUnderflowException | IllegalArgumentException e)
+					{
+						// The last record was not written completely
+						System.err.println("Ignoring damaged scramble record at byte " + start + " of " + file);
+						needsRewrite = true;
+						break;
+					}
+				}
+
+				if (needsRewrite)
+					rewrite(unused.values());
+			}
+			catch (IOException e)
+			{
+				e.printStackTrace();
+				enabled = false;
+			}
+		}
+
+		synchronized (this)
+		{
+			nextId = Math.max(nextId, maxId + 1);
+			for (Scramble scramble : unused.values())
+			{
+				int[][] state = scramble.getState();
+				String key = state.length + "x" + state[0].length;
+				storedScrambles.computeIfAbsent(key, k -> new LinkedList<Scramble>()).add(scramble);
+			}
+			loaded = true;
+			notifyAll();
+		}
+	}
+
+	/**
+	 * Replaces the file with one that only contains the given scrambles
+	 */
+	private void rewrite(Iterable<Scramble> scrambles) throws IOException
+	{
+		File tempFile = new File(file.getPath() + ".tmp");
+		try (BufferedOutputStream out = new BufferedOutputStream(new FileOutputStream(tempFile)))
+		{
+			for (Scramble scramble : scrambles)
+				out.write(scrambleRecord(scramble));
+		}
+		Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+	}
+
+	/**
+	 * Writes the pending records to the end of the file forever, one batch every
+	 * WRITE_INTERVAL
+	 */
+	private void writeRecords()
+	{
+		try
+		{
+			while (true)
+			{
+				Thread.sleep(WRITE_INTERVAL);
+				writePending();
+			}
+		}
+		catch (InterruptedException e)
+		{
+			// Stop writing
+		}
+	}
+
+	/**
+	 * Writes all the pending records to the end of the file at once
+	 */
+	private void writePending()
+	{
+		synchronized (pendingRecords)
+		{
+			ArrayList<byte[]> batch = new ArrayList<byte[]>();
+			pendingRecords.drainTo(batch);
+			if (batch.isEmpty())
+				return;
+
+			try (BufferedOutputStream out = new BufferedOutputStream(new FileOutputStream(file, true)))
+			{
+				for (byte[] record : batch)
+					out.write(record);
+			}
+			catch (IOException e)
+			{
+				e.printStackTrace();
+			}
+		}
+	}
+
+	static byte[] scrambleRecord(Scramble scramble)
+	{
+		int[][] state = scramble.getState();
+		int numRows = state.length;
+		int numCols = state[0].length;
+		MoveSequence sequence = scramble.getSequence();
+
+		try
+		{
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			DataOutputStream out = new DataOutputStream(bytes);
+			out.writeByte(SCRAMBLE_RECORD);
+			out.writeLong(scramble.getId());
+			out.writeByte(numRows);
+			out.writeByte(numCols);
+			out.writeShort(scramble.getOptimalLength());
+			out.writeInt(sequence == null ? NO_SEQUENCE : sequence.size());
+
+			// Each tile value takes just enough bits for the largest value
+			int bitsPerTile = bitsPerTile(numRows * numCols);
+			BitWriter stateBits = new BitWriter(out);
+			for (int r = 0; r < numRows; r++)
+			{
+				for (int c = 0; c < numCols; c++)
+					stateBits.write(state[r][c], bitsPerTile);
+			}
+			stateBits.flush();
+
+			// Each move takes two bits
+			if (sequence != null)
+			{
+				BitWriter moveBits = new BitWriter(out);
+				for (Move m : sequence)
+					moveBits.write(m.ordinal(), 2);
+				moveBits.flush();
+			}
+
+			return bytes.toByteArray();
+		}
+		catch (IOException e)
+		{
+			// Writing to a byte array cannot fail
+			throw new IllegalStateException(e);
+		}
+	}
+
+	static Scramble readScramble(ByteBuffer in)
+	{
+		long id = in.getLong();
+		int numRows = in.get();
+		int numCols = in.get();
+		int optimalLength = in.getShort();
+		int sequenceLength = in.getInt();
+		if (numRows < Settings.MIN_ROWS || numRows > Settings.MAX_ROWS || numCols < Settings.MIN_COLS || numCols > Settings.MAX_COLS)
+			throw new IllegalArgumentException("Invalid puzzle shape " + numRows + "x" + numCols);
+
+		int[][] state = new int[numRows][numCols];
+		int bitsPerTile = bitsPerTile(numRows * numCols);
+		BitReader stateBits = new BitReader(in);
+		HashSet<Integer> seen = new HashSet<Integer>();
+		for (int r = 0; r < numRows; r++)
+		{
+			for (int c = 0; c < numCols; c++)
+			{
+				state[r][c] = stateBits.read(bitsPerTile);
+				if (state[r][c] >= numRows * numCols || !seen.add(state[r][c]))
+					throw new IllegalArgumentException("Invalid puzzle state");
+			}
+		}
+
+		MoveSequence sequence = null;
+		if (sequenceLength != NO_SEQUENCE)
+		{
+			Move[] moves = Move.values();
+			sequence = new MoveSequence();
+			BitReader moveBits = new BitReader(in);
+			for (int i = 0; i < sequenceLength; i++)
+				sequence.add(moves[moveBits.read(2)]);
+		}
+
+		Scramble scramble = new Scramble(state, sequence, optimalLength);
+		scramble.setId(id);
+		return scramble;
+	}
+
+	private static int bitsPerTile(int numCells)
+	{
+		return 32 - Integer.numberOfLeadingZeros(numCells - 1);
+	}
+
+	/**
+	 * Packs values into bytes, most significant bit first
+	 */
+	private static class BitWriter
+	{
+		private DataOutputStream out;
+		private int buffer;
+		private int numBits;
+
+		private BitWriter(DataOutputStream out)
+		{
+			this.out = out;
+		}
+
+		private void write(int value, int bits) throws IOException
+		{
+			for (int i = bits - 1; i >= 0; i--)
+			{
+				buffer = (buffer << 1) | ((value >> i) & 1);
+				if (++numBits == 8)
+				{
+					out.writeByte(buffer);
+					buffer = 0;
+					numBits = 0;
+				}
+			}
+		}
+
+		/**
+		 * Writes the last partial byte, padded with zeros
+		 */
+		private void flush() throws IOException
+		{
+			if (numBits > 0)
+				out.writeByte(buffer << (8 - numBits));
+			buffer = 0;
+			numBits = 0;
+		}
+	}
+
+	/**
+	 * Reads values written by a BitWriter
+	 */
+	private static class BitReader
+	{
+		private ByteBuffer in;
+		private int buffer;
+		private int numBits;
+
+		private BitReader(ByteBuffer in)
+		{
+			this.in = in;
+		}
+
+		private int read(int bits)
+		{
+			int value = 0;
+			for (int i = 0; i < bits; i++)
+			{
+				if (numBits == 0)
+				{
+					buffer = in.get() & 0xFF;
+					numBits = 8;
+				}
+				numBits--;
+				value = (value << 1) | ((buffer >> numBits) & 1);
+			}
+			return value;
+		}
+	}
+}
@@ -1,6 +1,7 @@
 package fifteenpuzzle;
 
 import java.awt.Color;
+import java.io.File;
 
 public class Settings
 {
@@ -10,34 +11,67 @@ public class Settings
 	public static int MIN_SCRAMBLE_ANIMATION_WAIT = 5; // (MUST BE STRICTLY GREATER THAN ZERO) Minimum time (as a proportion of ANIMATION_TIME) to wait while animating the scramble if the puzzle is busy
 	public static int SCRAMBLE_SPEED = 24; // Animation time (in milliseconds) when scrambling the puzzle
 	public static int MAX_SCRAMBLE_TIME = 60000; // Maximum time that can be taken for the scramble animation
-	public static final int MAX_SCRAMBLE_SIZE = 9; // Maximum puzzle size (rows * cols) for an animated scramble to be attempted
+	public static final int MAX_OPTIMAL_SOLVE_SIZE = 9; // Maximum puzzle size (rows * cols) for which the solve feature looks for the shortest solution
 	public static int INSPECTION_TIME = 7000; // Time (in milliseconds) for user to inspect puzzle before starting
-	public static final int STEP_SIZE = 20; // Number of pixels a tile should move at a time
+	public static int FRAME_TIME = 10; // Time (in milliseconds) between animation frames
+	public static int MOVE_QUEUE_THRESHOLD = 3; // Number of moves the board can fall behind the player before the animations are sped up
+	public static Easing ANIMATION_EASING = Easing.EASE_OUT; // How tiles speed up and slow down while sliding
+	public static boolean SHOW_REPAINTS = false; // Whether to highlight the areas of the board that are repainted (for debugging)
+	public static boolean USE_BACK_BUFFER = true; // Whether to keep the tiles that are not moving in an image (in video memory if possible) rather than drawing them on every paint
+	public static int SCRAMBLE_POOL_SIZE = 8; // Number of scrambles kept ready in advance for each puzzle shape
+	public static int SCRAMBLE_POOL_THREADS = 1; // Number of background threads generating scrambles for each puzzle shape
 
 	public static final String HOME_DIR =
-			System.getProperty("user.home") + "\\AppData\\Roaming\\Fifteen Puzzle"; // Directory in which game data (including icons) are stored
-	public static final String ASSET_DIR = HOME_DIR + "\\Assets";
+			System.getProperty("user.home") + File.separator + "AppData" + File.separator + "Roaming" + File.separator + "Fifteen Puzzle"; // Directory in which game data (including icons) are stored
+	public static final String ASSET_DIR = HOME_DIR + File.separator + "Assets"; // Directory of the user's own assets, which replace the ones shipped with the game (see AssetStore)
+	public static final String ASSET_INDEX = "index.txt"; // Name of the file listing the assets on the classpath
 
-	// GUI icons
-	public static final String BUTTON_DIR = ASSET_DIR + "\\Buttons";
-	public static final String RADIO_BUTTON_DIR = ASSET_DIR + "\\Radio Buttons";
+	// GUI icons (names of assets, see AssetStore)
+	public static final String BUTTON_DIR = "Buttons";
+	public static final String RADIO_BUTTON_DIR = "Radio Buttons";
 
 	public static final String getTilePath(int value, boolean isDark)
+	{
+		return getTilePath(STYLE, value, isDark);
+	}
+
+	public static final String getTilePath(Appearance style, int value, boolean isDark)
 	{
 		String color = isDark ? "Dark" : "Light";
-		return ASSET_DIR + "\\" + STYLE.name + "\\" + color + "\\"
-				+ Integer.toString(value) + ".png";
+		return style.name + "/" + color + "/" + Integer.toString(value) + ".png";
+	}
+
+	public static final String getBorderPath(Appearance style)
+	{
+		return style.name + "/Border.png";
+	}
+
+	public static final String ATLAS_IMAGE = "Tiles.png"; // Name of the tile atlas image in each style directory (see TileAtlas)
+	public static final String ATLAS_INDEX = "Tiles.txt"; // Name of the tile atlas index in each style directory
+
+	public static final String getAtlasPath(Appearance style, String fileName)
+	{
+		return style.name + "/" + fileName;
 	}
 
 	public static Appearance STYLE = Appearance.WOOD; // Style of the tiles and board
 	public static TilePattern TILE_PATTERN = TilePattern.COLUMNS; // Pattern of light/dark tiles
 	public static Color MAIN_COLOR = new Color(240, 240, 240);
 	public static Color ACCENT_COLOR = new Color(195, 240, 255);
+	public static int TILE_IMAGE_CACHE_SIZE = 512; // Maximum number of scaled tile images kept in memory (see TileImageCache)
+	public static int PRELOAD_THREADS = 3; // Number of background threads decoding images at startup (see AssetPreloader)
 
 	// Solve history
-	public static final String SOLVE_HISTORY = HOME_DIR + "\\solves.txt"; // Directory in which past solves are stored
+	public static final String SOLVE_HISTORY = HOME_DIR + File.separator + "solves.txt"; // Directory in which past solves are stored
 	public static boolean SAVE_SOLVES = true;
 
+	// Scrambles
+	public static final String SCRAMBLE_FILE = HOME_DIR + File.separator + "scrambles.dat"; // File in which unused scrambles are kept between sessions
+	public static boolean SAVE_SCRAMBLES = true;
+	public static final int RANDOM_SCRAMBLE_LENGTH = -1;
+	public static int TARGET_SCRAMBLE_LENGTH = RANDOM_SCRAMBLE_LENGTH; // Length of the shortest solution of the scrambles in timed sessions (see DifficultyScrambler), or RANDOM_SCRAMBLE_LENGTH for uniformly random scrambles
+	public static String SCRAMBLE_SET = null; // Scramble set file (see ScrambleSet) whose scrambles are played in order in timed sessions, or NULL for random scrambles
+
 	// Puzzle dimensions
 	public static final int MIN_ROWS = 2;
 	public static final int MAX_ROWS = 10;
@@ -139,6 +139,8 @@ public class SettingsMenu implements KeyListener, ActionListener
 	private void quit()
 	{
 		isEnded = true;
+		// The tiles may look different with the new settings
+		TileImageCache.invalidate();
 		window.remove(settingsPane);
 		synchronized (menuSync)
 		{
@@ -0,0 +1,325 @@
+package fifteenpuzzle;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Reads and writes puzzle states as text, e.g. "1 2 3 / 4 5 6 / 7 8 0". Tiles
+ * are separated by spaces and rows by PuzzleScrambler.ROW_SEPARATOR.
+ *
+ * The accepted text is exactly what PuzzleScrambler.stringToState always
+ * accepted: within a row, the tiles are separated by a single space and written
+ * without leading zeros, and any whitespace is allowed at the start and end of
+ * a row. Empty rows are only allowed at the very end (so "1 2 / 3 0 /" is
+ * accepted, as String.split dropped the empty last row).
+ *
+ * States are parsed one character at a time, without splitting the text into
+ * strings, and each tile value is checked against a bitset of the values that
+ * have already been seen, so parsing takes linear time. A codec can parse a
+ * single state from a string or read a file with one state per line from a
+ * Reader. It keeps its buffers between calls, so it must only be used by one
+ * thread at a time.
+ */
+public class StateCodec
+{
+	private static final int BUFFER_SIZE = 8192;
+	private static final int NO_GAP = 0;
+	private static final int ONE_SPACE = 1;
+	private static final int OTHER_GAP = 2;
+
+	private int numRows;
+	private int numCols;
+	private int numCells;
+	private long[] seen;
+
+	// Parser state for the current state
+	private int row;
+	private int col;
+	private int value;
+	private boolean inNumber;
+	private boolean leadingZero; // Whether the current number starts with 0
+	private int gap; // The whitespace since the last number in the row: NO_GAP, ONE_SPACE or OTHER_GAP
+	private boolean rowEmpty; // Whether the current row has no characters at all so far
+	private boolean emptyRowSeen; // Whether an empty row was seen, after which only separators may follow
+	private boolean failed;
+
+	// Buffer for reading from a Reader
+	private char[] buffer;
+	private int bufferPos;
+	private int bufferEnd;
+	private long lineNumber;
+
+	/**
+	 * @param numRows The number of rows in the states
+	 * @param numCols The number of columns in the states
+	 */
+	public StateCodec(int numRows, int numCols)
+	{
+		this.numRows = numRows;
+		this.numCols = numCols;
+		this.numCells = numRows * numCols;
+		this.seen = new long[(numCells + 63) / 64];
+		this.lineNumber = 0;
+	}
+
+	/**
+	 * Parses a single state. Newlines are treated the same as row separators.
+	 *
+	 * @param text The text to parse
+	 * @param dest The array in which to store the tile values, in row-major order
+	 * @return TRUE if the text is a valid state and FALSE otherwise
+	 */
+	public boolean parse(CharSequence text, int[] dest)
+	{
+		reset();
+		for (int i = 0; i < text.length() && !failed; i++)
+		{
+			char c = text.charAt(i);
+			accept(c == '\n' ? PuzzleScrambler.ROW_SEPARATOR : c, dest);
+		}
+		return finish(dest);
+	}
+
+	/**
+	 * Reads the next state from a file with one state per line. Empty lines are
+	 * skipped. The codec reads ahead, so the same Reader must not be read in
+	 * between calls.
+	 *
+	 * @param in   The Reader to read from
+	 * @param dest The array in which to store the tile values, in row-major order
+	 * @return TRUE if a state was read and FALSE at the end of the input
+	 * @throws IOException If the input cannot be read or the line is not a valid
+	 *                     state (the rest of the line is skipped, so reading can
+	 *                     continue with the next one)
+	 */
+	public boolean read(Reader in, int[] dest) throws IOException
+	{
+		if (buffer == null)
+			buffer = new char[BUFFER_SIZE];
+
+		while (true)
+		{
+			reset();
+			boolean empty = true;
+			boolean endOfInput = false;
+			lineNumber++;
+
+			while (true)
+			{
+				if (bufferPos == bufferEnd)
+				{
+					bufferEnd = in.read(buffer, 0, buffer.length);
+					bufferPos = 0;
+					if (bufferEnd <= 0)
+					{
+						bufferEnd = 0;
+						endOfInput = true;
+						break;
+					}
+				}
+
+				char c = buffer[bufferPos++];
+				if (c == '\n')
+					break;
+				if (!Character.isWhitespace(c))
+					empty = false;
+				if (!failed)
+					accept(c, dest);
+			}
+
+			if (!empty)
+			{
+				if (!finish(dest))
+					throw new IOException("Invalid puzzle state on line " + lineNumber);
+				return true;
+			}
+			if (endOfInput)
+				return false;
+		}
+	}
+
+	/**
+	 * @return The number of the last line read by read()
+	 */
+	public long getLineNumber()
+	{
+		return lineNumber;
+	}
+
+	private void reset()
+	{
+		for (int i = 0; i < seen.length; i++)
+			seen[i] = 0;
+		row = 0;
+		col = 0;
+		value = 0;
+		inNumber = false;
+		leadingZero = false;
+		gap = NO_GAP;
+		rowEmpty = true;
+		emptyRowSeen = false;
+		failed = false;
+	}
+
+	private void accept(char c, int[] dest)
+	{
+		if (c == PuzzleScrambler.ROW_SEPARATOR)
+		{
+			if (rowEmpty)
+				emptyRowSeen = true;
+			else
+			{
+				endNumber(dest);
+				endRow();
+			}
+			return;
+		}
+
+		if (emptyRowSeen)
+		{
+			failed = true;
+			return;
+		}
+		rowEmpty = false;
+
+		if (c >= '0' && c <= '9')
+		{
+			if (!inNumber)
+			{
+				// Only a single space may separate two tiles
+				if (col > 0 && gap != ONE_SPACE)
+					failed = true;
+				inNumber = true;
+				leadingZero = c == '0';
+			}
+			else if (leadingZero)
+				failed = true;
+
+			value = 10 * value + (c - '0');
+			// Also stops the value from overflowing
+			if (value >= numCells)
+				failed = true;
+		}
+		else if (Character.isWhitespace(c))
+		{
+			endNumber(dest);
+			if (col > 0)
+				gap = c == ' ' && gap == NO_GAP ? ONE_SPACE : OTHER_GAP;
+		}
+		else
+			failed = true;
+	}
+
+	private void endNumber(int[] dest)
+	{
+		// After a failure, value may be too large to look up in seen
+		if (!inNumber || failed)
+			return;
+		inNumber = false;
+
+		long bit = 1L << (value % 64);
+		if (row >= numRows || col >= numCols || (seen[value / 64] & bit) != 0)
+		{
+			failed = true;
+			return;
+		}
+		seen[value / 64] |= bit;
+		dest[row * numCols + col] = value;
+		col++;
+		value = 0;
+		gap = NO_GAP;
+	}
+
+	private void endRow()
+	{
+		if (col != numCols)
+			failed = true;
+		row++;
+		col = 0;
+		gap = NO_GAP;
+		rowEmpty = true;
+	}
+
+	/**
+	 * Ends the last row (which does not need a separator after it)
+	 *
+	 * @return TRUE if a complete valid state was parsed
+	 */
+	private boolean finish(int[] dest)
+	{
+		endNumber(dest);
+		if (!rowEmpty)
+			endRow();
+		// Every row is full and no value was repeated, so every value appears once
+		return !failed && row == numRows;
+	}
+
+	/**
+	 * Writes a state in the format read by this class
+	 *
+	 * @param state A 2-D int array with the tile values
+	 * @param out   Where to write the state (e.g. a StringBuilder or a Writer)
+	 * @throws IOException If out cannot be written to
+	 */
+	public static void write(int[][] state, Appendable out) throws IOException
+	{
+		// Give a Writer the whole line in one call instead of one call per character
+		if (!(out instanceof StringBuilder))
+		{
+			StringBuilder line = new StringBuilder(state.length * state[0].length * 3);
+			write(state, line);
+			out.append(line);
+			return;
+		}
+
+		for (int r = 0; r < state.length; r++)
+		{
+			if (r > 0)
+				out.append(' ').append(PuzzleScrambler.ROW_SEPARATOR).append(' ');
+			for (int c = 0; c < state[r].length; c++)
+			{
+				if (c > 0)
+					out.append(' ');
+				writeNumber(state[r][c], out);
+			}
+		}
+	}
+
+	/**
+	 * Writes a state in the format read by this class
+	 *
+	 * @param cells   The tile values in row-major order
+	 * @param numCols The number of columns in the puzzle
+	 * @param out     Where to write the state (e.g. a StringBuilder or a Writer)
+	 * @throws IOException If out cannot be written to
+	 */
+	public static void write(int[] cells, int numCols, Appendable out) throws IOException
+	{
+		if (!(out instanceof StringBuilder))
+		{
+			StringBuilder line = new StringBuilder(cells.length * 3);
+			write(cells, numCols, line);
+			out.append(line);
+			return;
+		}
+
+		for (int i = 0; i < cells.length; i++)
+		{
+			if (i > 0 && i % numCols == 0)
+				out.append(' ').append(PuzzleScrambler.ROW_SEPARATOR).append(' ');
+			else if (i > 0)
+				out.append(' ');
+			writeNumber(cells[i], out);
+		}
+	}
+
+	/**
+	 * Writes a non-negative number without creating a String
+	 */
+	private static void writeNumber(int n, Appendable out) throws IOException
+	{
+		if (n >= 10)
+			writeNumber(n / 10, out);
+		out.append((char) ('0' + n % 10));
+	}
+}
@@ -0,0 +1,881 @@
+package fifteenpuzzle;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Headless tool that runs a breadth-first search over every state reachable
+ * from the solved state of a puzzle, printing how many states there are at
+ * each distance from solved and the states that are farthest away.
+ *
+ * States are identified by their rank among the solvable permutations (see
+ * rank()). By default, the search keeps 2 bits per state in memory (unvisited,
+ * current layer, next layer or done), which is enough for puzzles up to 3x4.
+ * With --disk, each layer is instead written to a sorted file and duplicates
+ * are removed by merging, so memory use is bounded by the chunk size no matter
+ * how large the puzzle is. Since every move changes the parity of the blank
+ * cell, a state's neighbours are all in the layer before it or the layer after
+ * it, so only the previous layer is needed to remove duplicates. If a layer
+ * has more than MAX_MERGE_RUNS runs, they are merged in several passes, so
+ * that only a bounded number of files are open at once.
+ *
+ * Usage: StateSpaceExplorer rows cols [--max-depth d] [--threads t]
+ * [--disk dir] [--chunk n]
+ */
+public class StateSpaceExplorer
+{
+	public static final int MAX_CELLS = 20; // Largest puzzle (rows * cols) whose ranks fit in a long
+	public static final int MAX_REPORTED_STATES = 100; // Largest number of farthest states that are printed
+	public static final int DEFAULT_CHUNK_SIZE = 1 << 20; // Default number of states sorted in memory at a time in disk mode
+	public static final int MAX_MERGE_RUNS = 64; // Largest number of runs merged at once in disk mode
+
+	private static final int UNVISITED = 0;
+	private static final long LOW_BITS = 0x5555555555555555L;
+	private static final int WORDS_PER_TASK = 1 << 14;
+
+	private int numRows;
+	private int numCols;
+	private int numCells;
+	private long numStates;
+	private long tileStates;
+	private long[] weights;
+	private int maxDepth;
+	private int numThreads;
+	private ArrayList<Long> layerSizes;
+	private ArrayList<int[]> farthestStates;
+	private ProgressListener progressListener;
+
+	/**
+	 * Is told about each layer as soon as the disk search has finished it, since
+	 * a large search can take hours
+	 */
+	public interface ProgressListener
+	{
+		/**
+		 * @param depth     The distance from solved of the states in the layer
+		 * @param numStates The number of states in the layer
+		 */
+		void layerFinished(int depth, long numStates);
+	}
+
+	/**
+	 * Sets up a search over the puzzle with the given dimensions
+	 *
+	 * @param numRows    The number of rows
+	 * @param numCols    The number of columns
+	 * @param maxDepth   The depth at which to stop searching (or
+	 *                   Integer.MAX_VALUE to search the whole state space)
+	 * @param numThreads The number of threads used to expand states
+	 */
+	public StateSpaceExplorer(int numRows, int numCols, int maxDepth, int numThreads)
+	{
+		if (numRows * numCols > MAX_CELLS)
+			throw new IllegalArgumentException("Puzzles larger than " + MAX_CELLS + " cells are not supported");
+
+		this.numRows = numRows;
+		this.numCols = numCols;
+		this.numCells = numRows * numCols;
+		this.maxDepth = maxDepth;
+		this.numThreads = numThreads;
+
+		// Only the first numCells - 3 tiles are ranked: the order of the last two is fixed by solvability
+		weights = new long[numCells - 3];
+		for (int i = 0; i < numCells - 3; i++)
+		{
+			long w = 1;
+			for (int j = numCells - 2 - i; j > 2; j--)
+				w *= j;
+			weights[i] = w;
+		}
+		tileStates = weights[0] * (numCells - 1);
+		numStates = tileStates * numCells;
+	}
+
+	public static void main(String[] args)
+	{
+		if (args.length < 2)
+		{
+			System.out.println("Usage: StateSpaceExplorer rows cols [--max-depth d] [--threads t] [--disk dir] [--chunk n]");
+			return;
+		}
+
+		int numRows = Integer.parseInt(args[0]);
+		int numCols = Integer.parseInt(args[1]);
+		int maxDepth = Integer.MAX_VALUE;
+		int numThreads = Runtime.getRuntime().availableProcessors();
+		File diskDir = null;
+		int chunkSize = DEFAULT_CHUNK_SIZE;
+
+		for (int i = 2; i + 1 < args.length; i += 2)
+		{
+			switch (args[i])
+			{
+				case "--max-depth":
+					maxDepth = Integer.parseInt(args[i + 1]);
+					break;
+				case "--threads":
+					numThreads = Integer.parseInt(args[i + 1]);
+					break;
+				case "--disk":
+					diskDir = new File(args[i + 1]);
+					break;
+				case "--chunk":
+					chunkSize = Integer.parseInt(args[i + 1]);
+					break;
+				default:
+					System.out.println("Unknown option " + args[i]);
+					return;
+			}
+		}
+
+		StateSpaceExplorer explorer = new StateSpaceExplorer(numRows, numCols, maxDepth, numThreads);
+		explorer.setProgressListener(new ProgressListener()
+		{
+			public void layerFinished(int depth, long numStates)
+			{
+				System.out.println("Finished depth " + depth + " (" + numStates + " states)");
+			}
+		});
+		System.out.println("Exploring the " + numRows + "x" + numCols + " puzzle (" + explorer.numStates + " states) with " + numThreads + " thread(s)");
+		long startTime = System.currentTimeMillis();
+
+		try
+		{
+			if (diskDir != null)
+				explorer.exploreOnDisk(diskDir, chunkSize);
+			else if (explorer.numStates / 4 > Runtime.getRuntime().maxMemory() / 2)
+			{
+				System.out.println("The state space does not fit in memory; use --disk to store it on disk");
+				return;
+			}
+			else
+				explorer.exploreInMemory();
+		}
+		catch (IOException | InterruptedException e)
+		{
+			e.printStackTrace();
+			return;
+		}
+
+		explorer.printResults(System.currentTimeMillis() - startTime);
+	}
+
+	/**
+	 * @param listener The listener told about each layer of the disk search as it
+	 *                 is finished, or NULL for none
+	 */
+	public void setProgressListener(ProgressListener listener)
+	{
+		this.progressListener = listener;
+	}
+
+	/**
+	 * Runs the search using a 2-bit table with an entry for every state
+	 *
+	 * @throws InterruptedException If the search is interrupted
+	 */
+	public void exploreInMemory() throws InterruptedException
+	{
+		if ((numStates + 31) / 32 > Integer.MAX_VALUE)
+			throw new IllegalStateException("The " + numRows + "x" + numCols + " puzzle has too many states to explore in memory");
+
+		AtomicLongArray table = new AtomicLongArray((int) ((numStates + 31) / 32));
+		layerSizes = new ArrayList<Long>();
+		farthestStates = new ArrayList<int[]>();
+
+		int[] solved = solvedCells();
+		long solvedRank = rank(solved);
+		table.set((int) (solvedRank >>> 5), 1L << ((solvedRank & 31) * 2));
+		layerSizes.add(1L);
+
+		ExecutorService pool = Executors.newFixedThreadPool(numThreads);
+		int current = 1;
+		int next = 2;
+		PriorityQueue<Long> lastLayer = new PriorityQueue<Long>();
+
+		for (int depth = 0; depth < maxDepth; depth++)
+		{
+			// Expanded states are marked as done, so the first states of each layer are kept in case it turns out to be the last
+			PriorityQueue<Long> expanded = new PriorityQueue<Long>(MAX_REPORTED_STATES, Collections.reverseOrder());
+			LongAdder found = new LongAdder();
+			AtomicInteger nextWord = new AtomicInteger(0);
+
+			final int currentCode = current;
+			final int nextCode = next;
+			ArrayList<Future<?>> tasks = new ArrayList<Future<?>>();
+			for (int t = 0; t < numThreads; t++)
+			{
+				tasks.add(pool.submit(new Runnable()
+				{
+					public void run()
+					{
+						expandWords(table, nextWord, currentCode, nextCode, found, expanded);
+					}
+				}));
+			}
+			waitFor(tasks);
+
+			lastLayer = expanded;
+			if (found.sum() == 0)
+				break;
+
+			layerSizes.add(found.sum());
+			current = nextCode;
+			next = currentCode;
+		}
+
+		// If the search stopped early, the farthest states found so far were never expanded and are still in the table
+		if (layerSizes.size() - 1 == maxDepth)
+		{
+			lastLayer = new PriorityQueue<Long>();
+			for (long state = 0; state < numStates && lastLayer.size() < MAX_REPORTED_STATES; state++)
+			{
+				if (((table.get((int) (state >>> 5)) >>> ((state & 31) * 2)) & 3) == current)
+					lastLayer.add(state);
+			}
+		}
+
+		pool.shutdown();
+		Long[] states = lastLayer.toArray(new Long[lastLayer.size()]);
+		Arrays.sort(states);
+		for (long state : states)
+		{
+			int[] cells = new int[numCells];
+			unrank(state, cells);
+			farthestStates.add(cells);
+		}
+	}
+
+	/**
+	 * Expands every state in the current layer within the words handed out by
+	 * nextWord, marking unvisited neighbours as part of the next layer. Expanded
+	 * states are then marked as done.
+	 *
+	 * @param expanded The MAX_REPORTED_STATES smallest states expanded by any
+	 *                 thread so far, largest first
+	 */
+	private void expandWords(AtomicLongArray table, AtomicInteger nextWord, int currentCode, int nextCode, LongAdder found, PriorityQueue<Long> expanded)
+	{
+		long pattern = currentCode == 1 ? LOW_BITS : LOW_BITS << 1;
+		int[] cells = new int[numCells];
+		long count = 0;
+		PriorityQueue<Long> smallest = new PriorityQueue<Long>(MAX_REPORTED_STATES, Collections.reverseOrder());
+
+		while (true)
+		{
+			int start = nextWord.getAndAdd(WORDS_PER_TASK);
+			if (start >= table.length())
+				break;
+			int end = Math.min(start + WORDS_PER_TASK, table.length());
+
+			for (int w = start; w < end; w++)
+			{
+				long bits = table.get(w);
+				long x = bits ^ pattern;
+				long matches = ~(x | (x >>> 1)) & LOW_BITS;
+				if (matches == 0)
+					continue;
+
+				long doneMask = matches | (matches << 1);
+				while (matches != 0)
+				{
+					int bit = Long.numberOfTrailingZeros(matches);
+					matches &= matches - 1;
+					long state = ((long) w << 5) + bit / 2;
+
+					unrank(state, cells);
+					count += expand(table, cells, nextCode);
+					keepSmallest(smallest, state);
+				}
+				table.getAndAccumulate(w, doneMask, (a, b) -> a | b);
+			}
+		}
+
+		found.add(count);
+		synchronized (expanded)
+		{
+			for (long state : smallest)
+				keepSmallest(expanded, state);
+		}
+	}
+
+	/**
+	 * Adds the given state to the queue (largest first) if it is one of the
+	 * MAX_REPORTED_STATES smallest states seen
+	 */
+	private static void keepSmallest(PriorityQueue<Long> queue, long state)
+	{
+		if (queue.size() < MAX_REPORTED_STATES)
+			queue.add(state);
+		else if (state < queue.peek())
+		{
+			queue.poll();
+			queue.add(state);
+		}
+	}
+
+	/**
+	 * Marks the unvisited neighbours of the given state with the given code
+	 *
+	 * @return The number of neighbours that were newly marked
+	 */
+	private int expand(AtomicLongArray table, int[] cells, int code)
+	{
+		int blank = 0;
+		while (cells[blank] != Puzzle.BLANK_TILE)
+			blank++;
+
+		int count = 0;
+		for (int neighbor : neighbors(blank))
+		{
+			if (neighbor == -1)
+				continue;
+
+			cells[blank] = cells[neighbor];
+			cells[neighbor] = Puzzle.BLANK_TILE;
+			if (mark(table, rank(cells), code))
+				count++;
+			cells[neighbor] = cells[blank];
+			cells[blank] = Puzzle.BLANK_TILE;
+		}
+		return count;
+	}
+
+	private static boolean mark(AtomicLongArray table, long state, int code)
+	{
+		int w = (int) (state >>> 5);
+		int shift = (int) (state & 31) * 2;
+
+		while (true)
+		{
+			long bits = table.get(w);
+			if (((bits >>> shift) & 3) != UNVISITED)
+				return false;
+			if (table.compareAndSet(w, bits, bits | ((long) code << shift)))
+				return true;
+		}
+	}
+
+	/**
+	 * Runs the search using one sorted file per layer in the given directory.
+	 * States reached from the current layer are sorted in chunks of the given
+	 * size, and the chunks are merged into the next layer while removing any
+	 * states that were in the previous layer.
+	 *
+	 * @param dir       The directory in which the layer files are written
+	 * @param chunkSize The number of states sorted in memory at a time
+	 * @throws IOException          If a layer file cannot be read or written
+	 * @throws InterruptedException If the search is interrupted
+	 */
+	public void exploreOnDisk(File dir, int chunkSize) throws IOException, InterruptedException
+	{
+		dir.mkdirs();
+		layerSizes = new ArrayList<Long>();
+		farthestStates = new ArrayList<int[]>();
+
+		File previous = null;
+		File current = layerFile(dir, 0);
+		try (DataOutputStream out = openOutput(current))
+		{
+			out.writeLong(rank(solvedCells()));
+		}
+		layerSizes.add(1L);
+
+		ExecutorService pool = Executors.newFixedThreadPool(numThreads);
+		for (int depth = 0; depth < maxDepth; depth++)
+		{
+			ArrayList<File> runs = combineRuns(dir, depth, writeRuns(dir, depth, current, chunkSize, pool));
+
+			File next = layerFile(dir, depth + 1);
+			long size = mergeRuns(runs, previous, next);
+			for (File run : runs)
+				run.delete();
+
+			if (size == 0)
+			{
+				next.delete();
+				break;
+			}
+
+			if (previous != null)
+				previous.delete();
+			previous = current;
+			current = next;
+			layerSizes.add(size);
+			if (progressListener != null)
+				progressListener.layerFinished(depth + 1, size);
+		}
+		pool.shutdown();
+		if (previous != null)
+			previous.delete();
+
+		// The current layer holds the farthest states that were found
+		try (DataInputStream in = openInput(current))
+		{
+			for (int i = 0; i < MAX_REPORTED_STATES; i++)
+			{
+				int[] cells = new int[numCells];
+				unrank(in.readLong(), cells);
+				farthestStates.add(cells);
+			}
+		}
+		catch (EOFException e)
+		{
+		}
+		current.delete();
+	}
+
+	/**
+	 * Reads the given layer in chunks, expanding each chunk on the pool and
+	 * writing the sorted, de-duplicated neighbours to a run file
+	 */
+	private ArrayList<File> writeRuns(File dir, int depth, File layer, int chunkSize, ExecutorService pool) throws IOException, InterruptedException
+	{
+		ArrayList<File> runs = new ArrayList<File>();
+		ArrayList<Future<?>> tasks = new ArrayList<Future<?>>();
+		Semaphore inFlight = new Semaphore(numThreads);
+		int blockSize = Math.max(1, chunkSize / 4);
+
+		try (DataInputStream in = openInput(layer))
+		{
+			boolean more = true;
+			while (more)
+			{
+				long[] block = new long[blockSize];
+				int n = 0;
+				try
+				{
+					while (n < blockSize)
+					{
+						long state = in.readLong();
+						block[n++] = state;
+					}
+				}
+				catch (EOFException e)
+				{
+					more = false;
+				}
+				if (n == 0)
+					break;
+
+				File run = new File(dir, "run-" + depth + "-" + runs.size() + ".bin");
+				runs.add(run);
+				final int blockLength = n;
+				inFlight.acquire();
+				tasks.add(pool.submit(new Runnable()
+				{
+					public void run()
+					{
+						try
+						{
+							writeRun(block, blockLength, run);
+						}
+						finally
+						{
+							inFlight.release();
+						}
+					}
+				}));
+			}
+		}
+
+		waitFor(tasks);
+		return runs;
+	}
+
+	private void writeRun(long[] block, int blockLength, File run)
+	{
+		long[] neighbors = new long[blockLength * 4];
+		int n = 0;
+		int[] cells = new int[numCells];
+
+		for (int i = 0; i < blockLength; i++)
+		{
+			unrank(block[i], cells);
+			int blank = 0;
+			while (cells[blank] != Puzzle.BLANK_TILE)
+				blank++;
+
+			for (int neighbor : neighbors(blank))
+			{
+				if (neighbor == -1)
+					continue;
+
+				cells[blank] = cells[neighbor];
+				cells[neighbor] = Puzzle.BLANK_TILE;
+				neighbors[n++] = rank(cells);
+				cells[neighbor] = cells[blank];
+				cells[blank] = Puzzle.BLANK_TILE;
+			}
+		}
+
+		Arrays.sort(neighbors, 0, n);
+		try (DataOutputStream out = openOutput(run))
+		{
+			for (int i = 0; i < n; i++)
+			{
+				if (i == 0 || neighbors[i] != neighbors[i - 1])
+					out.writeLong(neighbors[i]);
+			}
+		}
+		catch (IOException e)
+		{
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * Merges the given runs, MAX_MERGE_RUNS at a time, into longer runs until
+	 * there are no more than MAX_MERGE_RUNS left. The runs that were merged are
+	 * deleted.
+	 *
+	 * @return The remaining runs
+	 */
+	private ArrayList<File> combineRuns(File dir, int depth, ArrayList<File> runs) throws IOException
+	{
+		for (int pass = 0; runs.size() > MAX_MERGE_RUNS; pass++)
+		{
+			ArrayList<File> merged = new ArrayList<File>();
+			for (int i = 0; i < runs.size(); i += MAX_MERGE_RUNS)
+			{
+				List<File> group = runs.subList(i, Math.min(i + MAX_MERGE_RUNS, runs.size()));
+				File run = new File(dir, "merge-" + depth + "-" + pass + "-" + merged.size() + ".bin");
+				mergeRuns(group, null, run);
+				for (File f : group)
+					f.delete();
+				merged.add(run);
+			}
+			runs = merged;
+		}
+		return runs;
+	}
+
+	/**
+	 * Merges the given sorted runs into the given layer file, skipping duplicates
+	 * and any state in the previous layer
+	 *
+	 * @param previous The previous layer, or NULL if there is none
+	 * @return The number of states written
+	 */
+	private long mergeRuns(List<File> runs, File previous, File layer) throws IOException
+	{
+		PriorityQueue<RunReader> queue = new PriorityQueue<RunReader>();
+		RunReader prev = previous == null ? null : new RunReader(previous);
+		long count = 0;
+
+		try (DataOutputStream out = openOutput(layer))
+		{
+			for (File run : runs)
+			{
+				RunReader reader = new RunReader(run);
+				if (reader.advance())
+					queue.add(reader);
+				else
+					reader.close();
+			}
+			if (prev != null && !prev.advance())
+			{
+				prev.close();
+				prev = null;
+			}
+
+			long last = -1;
+			while (!queue.isEmpty())
+			{
+				RunReader reader = queue.poll();
+				long state = reader.head;
+				if (reader.advance())
+					queue.add(reader);
+				else
+					reader.close();
+
+				if (state == last)
+					continue;
+				last = state;
+
+				while (prev != null && prev.head < state)
+				{
+					if (!prev.advance())
+					{
+						prev.close();
+						prev = null;
+					}
+				}
+				if (prev != null && prev.head == state)
+					continue;
+
+				out.writeLong(state);
+				count++;
+			}
+		}
+		finally
+		{
+			if (prev != null)
+				prev.close();
+			for (RunReader reader : queue)
+				reader.close();
+		}
+
+		return count;
+	}
+
+	private void printResults(long millis)
+	{
+		System.out.println();
+		System.out.println("Depth\tStates");
+		long total = 0;
+		for (int depth = 0; depth < layerSizes.size(); depth++)
+		{
+			System.out.println(depth + "\t" + layerSizes.get(depth));
+			total += layerSizes.get(depth);
+		}
+		System.out.println("Total: " + total + " states in " + millis + " ms");
+
+		int lastDepth = layerSizes.size() - 1;
+		if (lastDepth < maxDepth)
+			System.out.println("God's number: " + lastDepth);
+		else
+			System.out.println("Stopped at depth " + maxDepth);
+
+		if (farthestStates.size() > 0)
+		{
+			System.out.println("States at depth " + lastDepth
+					+ (layerSizes.get(lastDepth) > farthestStates.size() ? " (first " + farthestStates.size() + ")" : "") + ":");
+			int[][] board = new int[numRows][numCols];
+			for (int[] cells : farthestStates)
+			{
+				for (int i = 0; i < numCells; i++)
+					board[i / numCols][i % numCols] = cells[i];
+				System.out.println("  " + PuzzleScrambler.stateToString(board));
+			}
+		}
+	}
+
+	/**
+	 * @return The cells adjacent to the given cell, with -1 for those that are off
+	 *         the board
+	 */
+	private int[] neighbors(int cell)
+	{
+		int row = cell / numCols;
+		int col = cell % numCols;
+		return new int[] { row > 0 ? cell - numCols : -1, row < numRows - 1 ? cell + numCols : -1, col > 0 ? cell - 1 : -1,
+				col < numCols - 1 ? cell + 1 : -1 };
+	}
+
+	private int[] solvedCells()
+	{
+		int[] cells = new int[numCells];
+		for (int i = 0; i < numCells - 1; i++)
+			cells[i] = i + 1;
+		cells[numCells - 1] = Puzzle.BLANK_TILE;
+		return cells;
+	}
+
+	/**
+	 * Gives the rank of the given solvable state among all solvable states. The
+	 * rank combines the blank cell with the order of the tiles in the other cells.
+	 * Only the first numCells - 3 tiles are needed, since the two remaining tiles
+	 * can only go in one order.
+	 *
+	 * @param cells The value in each cell, in row-major order
+	 * @return The rank, between 0 and numStates - 1
+	 */
+	public long rank(int[] cells)
+	{
+		int blank = 0;
+		while (cells[blank] != Puzzle.BLANK_TILE)
+			blank++;
+
+		long index = blank * tileStates;
+		int used = 0;
+		for (int i = 0, t = 0; t < numCells - 3; i++)
+		{
+			if (i == blank)
+				continue;
+
+			int value = cells[i] - 1;
+			index += (value - Integer.bitCount(used & ((1 << value) - 1))) * weights[t++];
+			used |= 1 << value;
+		}
+		return index;
+	}
+
+	/**
+	 * Fills the given array with the solvable state that has the given rank
+	 *
+	 * @param index The rank of the state
+	 * @param cells The array in which to write the value in each cell
+	 */
+	public void unrank(long index, int[] cells)
+	{
+		int blank = (int) (index / tileStates);
+		index %= tileStates;
+		cells[blank] = Puzzle.BLANK_TILE;
+
+		int used = 0;
+		int i = 0;
+		for (int t = 0; t < numCells - 3; t++, i++)
+		{
+			if (i == blank)
+				i++;
+
+			int smaller = (int) (index / weights[t]);
+			index %= weights[t];
+
+			int value = 0;
+			while ((used & (1 << value)) != 0 || smaller-- > 0)
+				value++;
+			used |= 1 << value;
+			cells[i] = value + 1;
+		}
+
+		// The last two tiles go in whichever order makes the state solvable
+		int first = i == blank ? i + 1 : i;
+		int second = first + 1 == blank ? first + 2 : first + 1;
+		int smallest = Integer.numberOfTrailingZeros(~used);
+		used |= 1 << smallest;
+		cells[first] = smallest + 1;
+		cells[second] = Integer.numberOfTrailingZeros(~used) + 1;
+		if (!isSolvable(cells))
+		{
+			cells[first] = cells[second];
+			cells[second] = smallest + 1;
+		}
+	}
+
+	/**
+	 * Checks if the given state is solvable, i.e. if the parity of its permutation
+	 * matches the parity of the blank cell's distance from its home
+	 */
+	private boolean isSolvable(int[] cells)
+	{
+		int visited = 0;
+		int cycles = 0;
+		int blank = -1;
+
+		for (int i = 0; i < numCells; i++)
+		{
+			if (cells[i] == Puzzle.BLANK_TILE)
+				blank = i;
+			if ((visited & (1 << i)) != 0)
+				continue;
+
+			cycles++;
+			for (int j = i; (visited & (1 << j)) == 0; j = home(cells[j]))
+				visited |= 1 << j;
+		}
+
+		int blankDistance = (numRows - 1 - blank / numCols) + (numCols - 1 - blank % numCols);
+		return (numCells - cycles) % 2 == blankDistance % 2;
+	}
+
+	private int home(int value)
+	{
+		return value == Puzzle.BLANK_TILE ? numCells - 1 : value - 1;
+	}
+
+	/**
+	 * @return The number of states at each depth, once a search has finished
+	 */
+	public ArrayList<Long> getLayerSizes()
+	{
+		return layerSizes;
+	}
+
+	/**
+	 * @return The number of solvable states
+	 */
+	public long getNumStates()
+	{
+		return numStates;
+	}
+
+	private static File layerFile(File dir, int depth)
+	{
+		return new File(dir, "layer-" + depth + ".bin");
+	}
+
+	private static DataOutputStream openOutput(File file) throws IOException
+	{
+		return new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16));
+	}
+
+	private static DataInputStream openInput(File file) throws IOException
+	{
+		return new DataInputStream(new BufferedInputStream(new FileInputStream(file), 1 << 16));
+	}
+
+	private static void waitFor(ArrayList<Future<?>> tasks) throws InterruptedException
+	{
+		for (Future<?> task : tasks)
+		{
+			try
+			{
+				task.get();
+			}
+			catch (ExecutionException e)
+			{
+				throw new RuntimeException(e.getCause());
+			}
+		}
+	}
+
+	/**
+	 * Reads a sorted file of states one at a time
+	 */
+	private static class RunReader implements Comparable<RunReader>
+	{
+		private DataInputStream in;
+		private long head;
+
+		private RunReader(File file) throws IOException
+		{
+			in = openInput(file);
+		}
+
+		private boolean advance() throws IOException
+		{
+			try
+			{
+				head = in.readLong();
+				return true;
+			}
+			catch (EOFException e)
+			{
+				return false;
+			}
+		}
+
+		private void close() throws IOException
+		{
+			in.close();
+		}
+
+		@Override
+		public int compareTo(RunReader other)
+		{
+			return Long.compare(head, other.head);
+		}
+	}
+}
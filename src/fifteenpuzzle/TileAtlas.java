@@ -0,0 +1,281 @@
+package fifteenpuzzle;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+import javax.imageio.ImageIO;
+
+/**
+ * All the tile images of one style packed into a single image, so that a style
+ * can be loaded by reading one file instead of one file per tile. Every tile
+ * takes a square cell of the same size. An index file lists where each tile is:
+ *
+ * <pre>
+ * Size,256
+ * Light,1,0,0
+ * Light,2,256,0
+ * ...
+ * Dark,1,0,2560
+ * </pre>
+ *
+ * Atlases are read through AssetStore, and built from the Dark and Light tile
+ * directories of a style with the build command. The cells are usually smaller
+ * than the original tile images, so tiles drawn larger than a cell are read
+ * from their own files instead (see TileImageCache).
+ *
+ * Usage: TileAtlas build styleDir [cellSize]
+ */
+public class TileAtlas
+{
+	private static final int DEFAULT_CELL_SIZE = 256; // Side length (in pixels) of each tile in a new atlas
+	private static final String[] SHADES = { "Light", "Dark" };
+
+	private static final HashMap<Appearance, TileAtlas> atlases = new HashMap<Appearance, TileAtlas>();
+
+	private BufferedImage image;
+	private int cellSize;
+	private int[][] cellX; // cellX[shade][value], or -1 if the tile is not in the atlas
+	private int[][] cellY;
+
+	private TileAtlas(BufferedImage image, int cellSize, int[][] cellX, int[][] cellY)
+	{
+		this.image = image;
+		this.cellSize = cellSize;
+		this.cellX = cellX;
+		this.cellY = cellY;
+	}
+
+	public static void main(String[] args)
+	{
+		try
+		{
+			if ((args.length == 2 || args.length == 3) && args[0].equals("build"))
+			{
+				File styleDir = new File(args[1]);
+				int cellSize = args.length == 3 ? Integer.parseInt(args[2]) : DEFAULT_CELL_SIZE;
+				int numTiles = build(styleDir, cellSize);
+				System.out.println("Packed " + numTiles + " tiles from " + styleDir + " into " + new File(styleDir, Settings.ATLAS_IMAGE));
+			}
+			else
+				System.out.println("Usage: TileAtlas build styleDir [cellSize]");
+		}
+		catch (IOException e)
+		{
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Gets the atlas for the given style, reading it the first time it is
+	 * requested
+	 *
+	 * @param style The style of the tiles
+	 * @return The atlas, or NULL if the style has no atlas (or it cannot be read)
+	 */
+	public static synchronized TileAtlas forStyle(Appearance style)
+	{
+		if (atlases.containsKey(style))
+			return atlases.get(style);
+
+		TileAtlas atlas = null;
+		String imageName = Settings.getAtlasPath(style, Settings.ATLAS_IMAGE);
+		String indexName = Settings.getAtlasPath(style, Settings.ATLAS_INDEX);
+		if (AssetStore.exists(imageName) && AssetStore.exists(indexName))
+		{
+			try (InputStream index = AssetStore.open(indexName))
+			{
+				BufferedImage image = AssetStore.readImage(imageName);
+				if (image == null)
+					throw new IOException("Unsupported image format in " + imageName);
+				atlas = load(image, new BufferedReader(new InputStreamReader(index, "UTF-8")), indexName);
+			}
+			catch (IOException e)
+			{
+				e.printStackTrace();
+			}
+		}
+
+		atlases.put(style, atlas);
+		return atlas;
+	}
+
+	/**
+	 * Forgets the atlases that have been read, so that they are read again the
+	 * next time they are needed
+	 */
+	public static synchronized void clearCache()
+	{
+		atlases.clear();
+	}
+
+	/**
+	 * Reads an atlas from its image and index files
+	 *
+	 * @throws IOException If either file cannot be read or the index is invalid
+	 */
+	public static TileAtlas load(File imageFile, File indexFile) throws IOException
+	{
+		BufferedImage image = ImageIO.read(imageFile);
+		if (image == null)
+			throw new IOException("Unsupported image format in " + imageFile);
+
+		return load(image, new BufferedReader(new FileReader(indexFile)), indexFile.toString());
+	}
+
+	/**
+	 * Reads the index of an atlas and closes it
+	 *
+	 * @param image     The atlas image
+	 * @param index     The index
+	 * @param indexFile The name of the index (for error messages)
+	 * @throws IOException If the index cannot be read or is invalid
+	 */
+	private static TileAtlas load(BufferedImage image, BufferedReader index, String indexFile) throws IOException
+	{
+		try (BufferedReader in = index)
+		{
+			String line = in.readLine();
+			if (line == null || !line.startsWith("Size,"))
+				throw new IOException("Expected Size in " + indexFile);
+			int cellSize = Integer.parseInt(line.substring("Size,".length()));
+
+			ArrayList<int[]> cells = new ArrayList<int[]>();
+			int maxValue = 0;
+			while ((line = in.readLine()) != null)
+			{
+				if (line.isEmpty())
+					continue;
+
+				String[] fields = line.split(",");
+				int shade = Arrays.asList(SHADES).indexOf(fields.length == 4 ? fields[0] : "");
+				if (shade == -1)
+					throw new IOException("Invalid line in " + indexFile + ": " + line);
+
+				int value = Integer.parseInt(fields[1]);
+				int x = Integer.parseInt(fields[2]);
+				int y = Integer.parseInt(fields[3]);
+				if (value < 0 || x < 0 || y < 0 || x + cellSize > image.getWidth() || y + cellSize > image.getHeight())
+					throw new IOException("Tile outside of the atlas in " + indexFile + ": " + line);
+
+				cells.add(new int[] { shade, value, x, y });
+				maxValue = Math.max(maxValue, value);
+			}
+
+			int[][] cellX = new int[SHADES.length][maxValue + 1];
+			int[][] cellY = new int[SHADES.length][maxValue + 1];
+			for (int[] positions : cellX)
+				Arrays.fill(positions, -1);
+			for (int[] cell : cells)
+			{
+				cellX[cell[0]][cell[1]] = cell[2];
+				cellY[cell[0]][cell[1]] = cell[3];
+			}
+
+			return new TileAtlas(image, cellSize, cellX, cellY);
+		}
+		catch (NumberFormatException e)
+		{
+			throw new IOException("Invalid number in " + indexFile, e);
+		}
+	}
+
+	/**
+	 * Packs the tile images in the Dark and Light subdirectories of a style
+	 * directory (named after the tile values, e.g. "12.png") into an atlas, and
+	 * writes the atlas image and index to the style directory
+	 *
+	 * @param styleDir The directory of the style (e.g. Assets\Wood)
+	 * @param cellSize The side length of each tile in the atlas (in pixels)
+	 * @return The number of tiles in the atlas
+	 * @throws IOException If the tiles cannot be read or the atlas cannot be
+	 *                     written
+	 */
+	public static int build(File styleDir, int cellSize) throws IOException
+	{
+		// Find the tiles, in order of shade and value
+		ArrayList<int[]> tiles = new ArrayList<int[]>();
+		for (int shade = 0; shade < SHADES.length; shade++)
+		{
+			File[] files = new File(styleDir, SHADES[shade]).listFiles();
+			if (files == null)
+				continue;
+
+			ArrayList<Integer> values = new ArrayList<Integer>();
+			for (File file : files)
+			{
+				String name = file.getName();
+				if (name.matches("[0-9]+\\.png"))
+					values.add(Integer.parseInt(name.substring(0, name.length() - ".png".length())));
+			}
+			values.sort(null);
+			for (int value : values)
+				tiles.add(new int[] { shade, value });
+		}
+		if (tiles.isEmpty())
+			throw new IOException("No tiles found in " + styleDir);
+
+		int numCols = (int) Math.ceil(Math.sqrt(tiles.size()));
+		int numRows = (tiles.size() + numCols - 1) / numCols;
+		BufferedImage atlas = new BufferedImage(numCols * cellSize, numRows * cellSize, BufferedImage.TYPE_INT_ARGB);
+		Graphics2D g = atlas.createGraphics();
+
+		try (BufferedWriter index = new BufferedWriter(new FileWriter(new File(styleDir, Settings.ATLAS_INDEX))))
+		{
+			index.write("Size," + cellSize + "\n");
+			for (int i = 0; i < tiles.size(); i++)
+			{
+				int shade = tiles.get(i)[0];
+				int value = tiles.get(i)[1];
+				File file = new File(new File(styleDir, SHADES[shade]), value + ".png");
+				BufferedImage tile = ImageIO.read(file);
+				if (tile == null)
+					throw new IOException("Unsupported image format in " + file);
+
+				int x = (i % numCols) * cellSize;
+				int y = (i / numCols) * cellSize;
+				g.drawImage(TileImageCache.scale(tile, cellSize, cellSize), x, y, null);
+				index.write(SHADES[shade] + "," + value + "," + x + "," + y + "\n");
+			}
+		}
+		finally
+		{
+			g.dispose();
+		}
+
+		ImageIO.write(atlas, "png", new File(styleDir, Settings.ATLAS_IMAGE));
+		return tiles.size();
+	}
+
+	/**
+	 * @param value The number on the tile
+	 * @param dark  Whether the tile is dark
+	 * @return The image of the tile (sharing its pixels with the atlas), or NULL if
+	 *         it is not in the atlas
+	 */
+	public BufferedImage getTile(int value, boolean dark)
+	{
+		int shade = dark ? 1 : 0;
+		if (value < 0 || value >= cellX[shade].length || cellX[shade][value] == -1)
+			return null;
+		return image.getSubimage(cellX[shade][value], cellY[shade][value], cellSize, cellSize);
+	}
+
+	/**
+	 * @return The side length of each tile in the atlas (in pixels)
+	 */
+	public int getCellSize()
+	{
+		return cellSize;
+	}
+}
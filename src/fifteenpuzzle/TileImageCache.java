@@ -0,0 +1,131 @@
+package fifteenpuzzle;
+
+import java.awt.Graphics2D;
+import java.awt.Image;
+import java.awt.image.BufferedImage;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Keeps the tile images, already scaled to the size at which they are drawn, so
+ * that the tile images are only read and scaled once for each size rather than
+ * every time a board is created or a state is applied instantly. The cache is
+ * shared by all sessions and holds at most Settings.TILE_IMAGE_CACHE_SIZE
+ * images; the least recently used ones are dropped first.
+ *
+ * Tiles that have no image are remembered as well, so that the image is not
+ * looked for again.
+ */
+public class TileImageCache
+{
+	private static final BufferedImage MISSING = new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB); // Marks tiles that have no image
+
+	private static final LinkedHashMap<String, BufferedImage> images = new LinkedHashMap<String, BufferedImage>(16, 0.75f, true)
+	{
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, BufferedImage> eldest)
+		{
+			return size() > Math.max(Settings.TILE_IMAGE_CACHE_SIZE, 1);
+		}
+	};
+
+	/**
+	 * Gets the image for a tile, reading and scaling it the first time it is
+	 * requested
+	 *
+	 * @param style The style of the tiles
+	 * @param value The number on the tile
+	 * @param dark  Whether the tile is dark
+	 * @param size  The side length of the tile (in pixels)
+	 * @return The scaled image, or NULL if there is no image for the tile
+	 */
+	public static BufferedImage get(Appearance style, int value, boolean dark, int size)
+	{
+		String key = style.name + " " + (dark ? "Dark" : "Light") + " " + value + " " + size;
+
+		synchronized (images)
+		{
+			BufferedImage image = images.get(key);
+			if (image != null)
+				return image == MISSING ? null : image;
+		}
+
+		// Load outside the lock, so that other tiles can be read from the cache in the meantime
+		BufferedImage image = load(style, value, dark, size);
+
+		synchronized (images)
+		{
+			images.put(key, image == null ? MISSING : image);
+		}
+		return image;
+	}
+
+	/**
+	 * Removes all the images, e.g. after the settings have been changed. The tile
+	 * atlases are read again as well.
+	 */
+	public static void invalidate()
+	{
+		synchronized (images)
+		{
+			images.clear();
+		}
+		TileAtlas.clearCache();
+	}
+
+	/**
+	 * @return The number of images in the cache
+	 */
+	public static int size()
+	{
+		synchronized (images)
+		{
+			return images.size();
+		}
+	}
+
+	/**
+	 * Reads the image of a tile from the atlas of its style (see TileAtlas), or
+	 * from its own file if the style has no atlas, and scales it. A tile's own
+	 * file is used instead of the atlas if it comes from a place that overrides
+	 * the atlas (e.g. the user's own assets, see AssetStore), or if the tile is
+	 * drawn larger than the atlas cells, so that large tiles are scaled down from
+	 * the original image instead of being scaled up from the atlas.
+	 *
+	 * @return The scaled image, or NULL if the tile has no image or it cannot be
+	 *         read
+	 */
+	private static BufferedImage load(Appearance style, int value, boolean dark, int size)
+	{
+		String name = Settings.getTilePath(style, value, dark);
+		TileAtlas atlas = TileAtlas.forStyle(style);
+		if (atlas != null && (size <= atlas.getCellSize() || !AssetStore.exists(name))
+				&& AssetStore.getLayer(name) <= AssetStore.getLayer(Settings.getAtlasPath(style, Settings.ATLAS_IMAGE)))
+		{
+			BufferedImage tile = atlas.getTile(value, dark);
+			if (tile != null)
+				return scale(tile, size, size);
+		}
+
+		BufferedImage original = AssetStore.readImage(name);
+		if (original == null)
+			return null;
+		return scale(original, size, size);
+	}
+
+	/**
+	 * Scales an image the same way as the tiles were scaled before they were
+	 * cached (with Image.SCALE_SMOOTH)
+	 */
+	protected static BufferedImage scale(Image original, int width, int height)
+	{
+		Image scaled = original.getScaledInstance(width, height, Image.SCALE_SMOOTH);
+		BufferedImage out = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+		Graphics2D g = out.createGraphics();
+		g.drawImage(scaled, 0, 0, null);
+		g.dispose();
+		return out;
+	}
+}
@@ -15,7 +15,7 @@ import java.io.FileWriter;
 import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
-import java.util.LinkedList;
+import java.util.concurrent.CompletableFuture;
 import javax.swing.BorderFactory;
 import javax.swing.Box;
 import javax.swing.BoxLayout;
@@ -38,6 +38,9 @@ public class TimedSession extends AbstractSession implements KeyListener, Action
 
 	private JFrame window;
 	private Puzzle puzzle;
+	private int[][] stateBuffer; // Reused for copies of the puzzle state
+	private ScrambleSet scrambleSet;
+	private int nextSetIndex;
 	private int numRows;
 	private int numCols;
 	private SolveStatus status;
@@ -62,6 +65,14 @@ public class TimedSession extends AbstractSession implements KeyListener, Action
 		this.window = window;
 		this.status = SolveStatus.PRE;
 
+		// Start generating scrambles while the user gets ready
+		ScramblePool.forShape(numRows, numCols);
+		if (Settings.TARGET_SCRAMBLE_LENGTH != Settings.RANDOM_SCRAMBLE_LENGTH)
+			DifficultyScrambler.forShape(numRows, numCols, Settings.TARGET_SCRAMBLE_LENGTH).prepare();
+
+		if (Settings.SCRAMBLE_SET != null)
+			loadScrambleSet();
+
 		// Set up file writer for the solve results
 		if (Settings.SAVE_SOLVES)
 		{
@@ -106,6 +117,18 @@ public class TimedSession extends AbstractSession implements KeyListener, Action
 		innerBoard.setFocusable(true);
 		puzzle = makePuzzle(innerBoard);
 		innerBoard.requestFocusInWindow();
+
+		// Show that scrambles are being prepared until they are ready
+		if (Settings.TARGET_SCRAMBLE_LENGTH != Settings.RANDOM_SCRAMBLE_LENGTH)
+		{
+			updateInstructions();
+			DifficultyScrambler.forShape(numRows, numCols, Settings.TARGET_SCRAMBLE_LENGTH).prepare().whenComplete((result, error) ->
+			{
+				if (error != null)
+					showErrorMessage("Error: scrambles of length " + Settings.TARGET_SCRAMBLE_LENGTH + " could not be prepared. Random scrambles will be used instead.");
+				updateInstructions();
+			});
+		}
 	}
 
 	private void startNewSolve()
@@ -138,22 +161,106 @@ public class TimedSession extends AbstractSession implements KeyListener, Action
 		startThread.start();
 	}
 
-	private String scramblePuzzle()
+	/**
+	 * Loads the scramble set from Settings.SCRAMBLE_SET so that its scrambles are
+	 * used in order before any random ones
+	 */
+	private void loadScrambleSet()
 	{
-		if (numRows * numCols > Settings.MAX_SCRAMBLE_SIZE)
+		try
+		{
+			ScrambleSet set = ScrambleSet.load(new File(Settings.SCRAMBLE_SET));
+			if (set.getNumRows() == numRows && set.getNumCols() == numCols)
+			{
+				scrambleSet = set;
+				nextSetIndex = 0;
+			}
+			else
+				showErrorMessage("Error: the scramble set " + Settings.SCRAMBLE_SET + " is for a " + set.getNumRows() + "x" + set.getNumCols()
+						+ " puzzle. Random scrambles will be used instead.");
+		}
+		catch (IOException e)
 		{
-			int[][] scrambleState = PuzzleScrambler.generateScrambleState(numRows, numCols);
-			sendScramble(scrambleState);
-			return PuzzleScrambler.stateToString(scrambleState);
+			showErrorMessage("Error: the scramble set " + Settings.SCRAMBLE_SET + " could not be read. Random scrambles will be used instead.");
 		}
+	}
+
+	private String scramblePuzzle()
+	{
+		Scramble scramble = nextScramble();
+
+		// Animate the scramble if it can be done in time, otherwise apply it instantly
+		if (scramble.getSequence() != null)
+			sendScramble(scramble.getSequence());
 		else
+			sendScramble(scramble.getState());
+
+		// The scramble has now been applied to the puzzle, so its state is the scramble
+		stateBuffer = puzzle.copyState(stateBuffer);
+		return PuzzleScrambler.stateToString(stateBuffer);
+	}
+
+	/**
+	 * Chooses the next scramble: the next one in the scramble set if there is one,
+	 * then one of the target length if Settings.TARGET_SCRAMBLE_LENGTH is set and
+	 * the scrambler is ready (see DifficultyScrambler.prepare() ), and otherwise a
+	 * random one from the pool
+	 * 
+	 * This method may include a pause, so it must not be called directly from the
+	 * EDT
+	 */
+	private Scramble nextScramble()
+	{
+		int maxLength = Settings.MAX_SCRAMBLE_TIME / Settings.SCRAMBLE_SPEED;
+
+		// Once the scrambles in the set have all been played, go back to random ones
+		if (scrambleSet != null && nextSetIndex < scrambleSet.size())
+			return PuzzleScrambler.scrambleFor(scrambleSet.getState(nextSetIndex++), maxLength);
+
+		try
+		{
+			if (isPrepared())
+			{
+				ArrayList<Scramble> scrambles = DifficultyScrambler.forShape(numRows, numCols, Settings.TARGET_SCRAMBLE_LENGTH).generate(1);
+				if (!scrambles.isEmpty())
+					return scrambles.get(0);
+				showErrorMessage("No scramble of length " + Settings.TARGET_SCRAMBLE_LENGTH + " was found. A random scramble will be used instead.");
+			}
+
+			return ScramblePool.forShape(numRows, numCols).take();
+		}
+		catch (InterruptedException e)
 		{
-			LinkedList<Move> scrambleSequence = PuzzleScrambler.generateScrambleSequence(numRows, numCols);
-			sendScramble(scrambleSequence);
-			return PuzzleScrambler.stateToString(PuzzleScrambler.applySequence(puzzle.currentState(), scrambleSequence));
+			return PuzzleScrambler.generateScramble(numRows, numCols, maxLength);
 		}
 	}
 
+	/**
+	 * @return TRUE if scrambles of the target length are used and can be generated
+	 *         without building anything first
+	 */
+	private boolean isPrepared()
+	{
+		if (Settings.TARGET_SCRAMBLE_LENGTH == Settings.RANDOM_SCRAMBLE_LENGTH)
+			return false;
+
+		CompletableFuture<Void> ready = DifficultyScrambler.forShape(numRows, numCols, Settings.TARGET_SCRAMBLE_LENGTH).prepare();
+		return ready.isDone() && !ready.isCompletedExceptionally();
+	}
+
+	/**
+	 * @return A line saying that scrambles of the target length are being prepared
+	 *         (and random ones are used meanwhile), or NULL if there is nothing to
+	 *         say
+	 */
+	private String preparingNote()
+	{
+		if (Settings.TARGET_SCRAMBLE_LENGTH == Settings.RANDOM_SCRAMBLE_LENGTH
+				|| DifficultyScrambler.forShape(numRows, numCols, Settings.TARGET_SCRAMBLE_LENGTH).prepare().isDone())
+			return null;
+		return "Preparing scrambles of length " + Settings.TARGET_SCRAMBLE_LENGTH + " (random ones are used meanwhile)...";
+	}
+
 	private void endSolve()
 	{
 		timer.halt();
@@ -380,23 +487,16 @@ public class TimedSession extends AbstractSession implements KeyListener, Action
 
 	public void sendMove(Move m)
 	{
-		Thread moveThread = new Thread(new Runnable()
-		{
-			public void run()
-			{
-				boolean successfulMove = puzzle.move(m);
-				if (successfulMove)
-					currentSolve.addMove();
+		boolean successfulMove = puzzle.move(m);
+		if (successfulMove)
+			currentSolve.addMove();
 
-				// Check if the puzzle was solved (but only if the user actually moved a tile)
-				if (successfulMove && puzzle.isSolved())
-				{
-					endSolve();
-					updateInstructions();
-				}
-			}
-		});
-		moveThread.start();
+		// Check if the puzzle was solved (but only if the user actually moved a tile)
+		if (successfulMove && puzzle.isSolved())
+		{
+			endSolve();
+			updateInstructions();
+		}
 	}
 
 	private JLabel generateCenteredLabel(String str)
@@ -414,10 +514,12 @@ public class TimedSession extends AbstractSession implements KeyListener, Action
 
 	private void updateInstructions()
 	{
+		String note;
 		switch (status)
 		{
 			case PRE:
-				msg.setText("<html><center>Press SPACE to begin solving<br>.</center></html>");
+				note = preparingNote();
+				msg.setText("<html><center>Press SPACE to begin solving<br>" + (note == null ? "." : note) + "</center></html>");
 				break;
 			case SCRAMBLING:
 				msg.setText("<html><center>Scrambling<br>...</center></html>");
@@ -429,7 +531,8 @@ public class TimedSession extends AbstractSession implements KeyListener, Action
 				msg.setText("<html><center>Solving<br>...</center></html>");
 				break;
 			case POST:
-				msg.setText("<html><center>Puzzle solved!<br>Press SPACE to begin the next solve</center></html>");
+				note = preparingNote();
+				msg.setText("<html><center>Puzzle solved!<br>Press SPACE to begin the next solve" + (note == null ? "" : "<br>" + note) + "</center></html>");
 				break;
 			default:
 				break;
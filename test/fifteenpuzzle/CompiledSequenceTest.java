@@ -0,0 +1,122 @@
+package fifteenpuzzle;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+
+public class CompiledSequenceTest
+{
+	private static final Move[] MOVES = Move.values();
+
+	@Test
+	public void compileMatchesApplySequence()
+	{
+		SplittableRandom rgen = new SplittableRandom(39);
+		for (int i = 0; i < 200; i++)
+		{
+			int[][] state = PuzzleScrambler.generateScrambleState(rgen, 3, 4);
+			MoveSequence sequence = randomSequence(rgen, rgen.nextInt(50));
+			int[] blank = PuzzleScrambler.getBlankCell(state);
+
+			CompiledSequence compiled = CompiledSequence.compile(sequence, 3, 4, blank[0], blank[1]);
+			assertArrayEquals(PuzzleScrambler.applySequence(state, sequence), compiled.apply(state));
+		}
+	}
+
+	@Test
+	public void powerMatchesRepeatedApplication()
+	{
+		SplittableRandom rgen = new SplittableRandom(39);
+		for (int i = 0; i < 100; i++)
+		{
+			int[][] state = PuzzleScrambler.generateScrambleState(rgen, 4, 4);
+			int[] blank = PuzzleScrambler.getBlankCell(state);
+			MoveSequence cycle = randomCycle(rgen, state);
+			CompiledSequence compiled = CompiledSequence.compile(cycle, 4, 4, blank[0], blank[1]);
+
+			int times = rgen.nextInt(40);
+			int[][] expected = PuzzleScrambler.cloneArray(state);
+			for (int t = 0; t < times; t++)
+				PuzzleScrambler.applySequenceInPlace(expected, cycle);
+
+			assertArrayEquals(expected, compiled.power(times).apply(state), "Power " + times + " of " + cycle);
+			assertArrayEquals(state, compiled.power(times).then(compiled.power(-times)).apply(state));
+		}
+	}
+
+	@Test
+	public void hugePowerMatchesOrder()
+	{
+		// The blank goes round a 2x2 block, which cycles three tiles: after 3 laps the board is back where it started
+		MoveSequence lap = PuzzleScrambler.stringToSequence("R D L U");
+		CompiledSequence compiled = CompiledSequence.compile(lap, 4, 4, 3, 3);
+		int[][] solved = PuzzleSolver.solvedState(4, 4);
+
+		assertArrayEquals(solved, compiled.power(3_000_000_000L).apply(solved));
+		assertArrayEquals(compiled.apply(solved), compiled.power(3_000_000_001L).apply(solved));
+		assertArrayEquals(compiled.inverse().apply(solved), compiled.power(-1).apply(solved));
+	}
+
+	@Test
+	public void powerOfMinLong()
+	{
+		// The lap has order 3, and both -2^63 and 2^63 - 1 leave 1 mod 3, so both powers are a single lap
+		MoveSequence lap = PuzzleScrambler.stringToSequence("R D L U");
+		CompiledSequence compiled = CompiledSequence.compile(lap, 4, 4, 3, 3);
+		int[][] solved = PuzzleSolver.solvedState(4, 4);
+
+		assertArrayEquals(compiled.apply(solved), compiled.power(Long.MIN_VALUE).apply(solved));
+		assertArrayEquals(compiled.apply(solved), compiled.power(Long.MAX_VALUE).apply(solved));
+		assertArrayEquals(compiled.inverse().apply(solved), compiled.power(Long.MIN_VALUE + 1).apply(solved));
+
+		CompiledSequence moveBlank = CompiledSequence.compile(PuzzleScrambler.stringToSequence("R"), 3, 3, 2, 2);
+		assertThrows(IllegalArgumentException.class, () -> moveBlank.power(Long.MIN_VALUE));
+	}
+
+	@Test
+	public void rejectsRepeatingSequenceThatMovesTheBlank()
+	{
+		CompiledSequence compiled = CompiledSequence.compile(PuzzleScrambler.stringToSequence("R"), 3, 3, 2, 2);
+		assertThrows(IllegalArgumentException.class, () -> compiled.power(2));
+	}
+
+	@Test
+	public void rejectsStateWithBlankElsewhere()
+	{
+		CompiledSequence compiled = CompiledSequence.compile(PuzzleScrambler.stringToSequence("R L"), 3, 3, 0, 0);
+		assertThrows(IllegalArgumentException.class, () -> compiled.apply(PuzzleSolver.solvedState(3, 3)));
+	}
+
+	private static MoveSequence randomSequence(SplittableRandom rgen, int length)
+	{
+		MoveSequence sequence = new MoveSequence();
+		for (int i = 0; i < length; i++)
+			sequence.add(MOVES[rgen.nextInt(MOVES.length)]);
+		return sequence;
+	}
+
+	/**
+	 * @return A random sequence followed by the moves that bring the blank back
+	 *         to where it started in the given state
+	 */
+	private static MoveSequence randomCycle(SplittableRandom rgen, int[][] state)
+	{
+		MoveSequence sequence = randomSequence(rgen, 1 + rgen.nextInt(30));
+		int[] start = PuzzleScrambler.getBlankCell(state);
+		int[] end = PuzzleScrambler.getBlankCell(PuzzleScrambler.applySequence(state, sequence));
+
+		// LEFT moves the blank right and UP moves it down (see Move)
+		for (int c = end[1]; c < start[1]; c++)
+			sequence.add(Move.LEFT);
+		for (int c = end[1]; c > start[1]; c--)
+			sequence.add(Move.RIGHT);
+		for (int r = end[0]; r < start[0]; r++)
+			sequence.add(Move.UP);
+		for (int r = end[0]; r > start[0]; r--)
+			sequence.add(Move.DOWN);
+		return sequence;
+	}
+}
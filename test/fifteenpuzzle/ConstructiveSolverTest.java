@@ -0,0 +1,68 @@
+package fifteenpuzzle;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+public class ConstructiveSolverTest
+{
+	private static final long SEED = 28;
+
+	@Test
+	public void solvesRandom4x4Boards()
+	{
+		checkSolves(4, 4, 200);
+	}
+
+	@Test
+	public void solvesRandom5x5Boards()
+	{
+		checkSolves(5, 5, 100);
+	}
+
+	@Test
+	public void solvesRectangularBoards()
+	{
+		checkSolves(2, 7, 50);
+		checkSolves(6, 3, 50);
+		checkSolves(10, 10, 10);
+	}
+
+	@Test
+	public void rejectsUnsolvableBoards()
+	{
+		int[][] state = PuzzleSolver.solvedState(4, 4);
+		state[0][0] = 2;
+		state[0][1] = 1;
+
+		MoveSequence moves = new MoveSequence();
+		assertFalse(ConstructiveSolver.solve(state, moves::add));
+		assertTrue(moves.isEmpty());
+	}
+
+	/**
+	 * Solves seeded random boards, applying the moves as they are streamed and
+	 * checking that each one can be made
+	 */
+	private static void checkSolves(int numRows, int numCols, int count)
+	{
+		for (int i = 0; i < count; i++)
+		{
+			int[][] scramble = PuzzleScrambler.generateScrambleState(SEED, i, numRows, numCols);
+			int[][] state = PuzzleScrambler.cloneArray(scramble);
+
+			boolean solvable = ConstructiveSolver.solve(scramble, m ->
+			{
+				int[] blankBefore = PuzzleScrambler.getBlankCell(state);
+				PuzzleScrambler.applySequenceInPlace(state, new MoveSequence().add(m));
+				assertFalse(Arrays.equals(blankBefore, PuzzleScrambler.getBlankCell(state)), "Move " + m + " cannot be made");
+			});
+
+			assertTrue(solvable);
+			assertTrue(PuzzleSolver.isSolved(state), "Not solved from " + PuzzleScrambler.stateToString(scramble));
+		}
+	}
+}
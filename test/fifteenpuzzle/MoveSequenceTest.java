@@ -0,0 +1,117 @@
+package fifteenpuzzle;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+
+public class MoveSequenceTest
+{
+	private static final Move[] MOVES = Move.values();
+
+	@Test
+	public void addGetAndRemoveAcrossWords()
+	{
+		ArrayList<Move> expected = randomMoves(new SplittableRandom(37), 1000);
+		MoveSequence sequence = new MoveSequence(expected);
+
+		assertEquals(expected.size(), sequence.size());
+		for (int i = 0; i < expected.size(); i++)
+			assertEquals(expected.get(i), sequence.get(i));
+
+		while (!expected.isEmpty())
+			assertEquals(expected.remove(expected.size() - 1), sequence.removeLast());
+		assertTrue(sequence.isEmpty());
+		assertThrows(IndexOutOfBoundsException.class, () -> sequence.get(0));
+	}
+
+	@Test
+	public void viewsReadTheSameMoves()
+	{
+		ArrayList<Move> moves = randomMoves(new SplittableRandom(37), 100);
+		MoveSequence sequence = new MoveSequence(moves);
+
+		ArrayList<Move> reversed = new ArrayList<Move>(moves);
+		Collections.reverse(reversed);
+		assertEquals(new MoveSequence(reversed), sequence.reverse());
+
+		ArrayList<Move> inverted = new ArrayList<Move>();
+		for (Move m : reversed)
+			inverted.add(MOVES[m.ordinal() ^ 1]);
+		assertEquals(new MoveSequence(inverted), sequence.inverse());
+
+		assertEquals(new MoveSequence(moves.subList(30, 70)), sequence.slice(30, 70));
+		assertEquals(new MoveSequence(reversed.subList(10, 40)), sequence.reverse().slice(10, 40));
+		assertEquals(sequence, sequence.inverse().inverse());
+	}
+
+	@Test
+	public void viewIsUnchangedWhenSourceChanges()
+	{
+		MoveSequence sequence = new MoveSequence(randomMoves(new SplittableRandom(37), 69)).add(Move.DOWN);
+		MoveSequence copy = sequence.copy();
+		MoveSequence reverse = sequence.reverse();
+		MoveSequence inverse = sequence.inverse();
+		MoveSequence slice = sequence.slice(0, 70);
+
+		// Replace the last move, which the views can see
+		sequence.removeLast();
+		sequence.add(Move.UP);
+		sequence.add(Move.UP);
+
+		assertEquals(copy.reverse(), reverse);
+		assertEquals(copy.inverse(), inverse);
+		assertEquals(copy.slice(0, 70), slice);
+	}
+
+	@Test
+	public void sourceIsUnchangedWhenViewChanges()
+	{
+		MoveSequence sequence = new MoveSequence(randomMoves(new SplittableRandom(37), 70));
+		MoveSequence copy = sequence.copy();
+
+		MoveSequence slice = sequence.slice(0, 64);
+		slice.add(Move.DOWN);
+		MoveSequence reverse = sequence.reverse();
+		reverse.removeLast();
+		reverse.add(Move.RIGHT);
+
+		assertEquals(copy, sequence);
+		assertEquals(65, slice.size());
+		assertEquals(Move.DOWN, slice.getLast());
+		assertEquals(Move.RIGHT, reverse.getLast());
+	}
+
+	@Test
+	public void addAllToItself()
+	{
+		MoveSequence sequence = new MoveSequence().add(Move.LEFT).add(Move.UP);
+		sequence.addAll(sequence);
+		assertEquals("L U L U", sequence.toString());
+	}
+
+	@Test
+	public void equalsAndHashCode()
+	{
+		MoveSequence a = new MoveSequence().add(Move.LEFT).add(Move.DOWN);
+		MoveSequence b = new MoveSequence().add(Move.UP).add(Move.RIGHT).inverse();
+
+		assertEquals(a, b);
+		assertEquals(a.hashCode(), b.hashCode());
+		assertNotEquals(a, a.reverse());
+	}
+
+	private static ArrayList<Move> randomMoves(SplittableRandom rgen, int count)
+	{
+		ArrayList<Move> moves = new ArrayList<Move>();
+		for (int i = 0; i < count; i++)
+			moves.add(MOVES[rgen.nextInt(MOVES.length)]);
+		return moves;
+	}
+}
@@ -0,0 +1,79 @@
+package fifteenpuzzle;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+public class PatternDatabaseTest
+{
+	private static final long SEED = 26;
+
+	@Test
+	public void estimateIsZeroWhenSolved()
+	{
+		assertEquals(0, PatternDatabase.forShape(3, 3).estimate(PuzzleSolver.solvedState(3, 3)));
+		assertEquals(0, PatternDatabase.forShape(3, 4).estimate(PuzzleSolver.solvedState(3, 4)));
+	}
+
+	@Test
+	public void estimateNeverExceedsOptimalLength()
+	{
+		PatternDatabase pdb = PatternDatabase.forShape(3, 3);
+		for (int i = 0; i < 100; i++)
+		{
+			int[][] state = PuzzleScrambler.generateScrambleState(SEED, i, 3, 3);
+			int optimal = PuzzleSolver.solve(state).size();
+			int estimate = pdb.estimate(state);
+
+			assertTrue(estimate <= optimal, "Estimate " + estimate + " exceeds optimal length " + optimal + " for " + PuzzleScrambler.stateToString(state));
+			assertEquals(optimal % 2, estimate % 2, "Parity of the estimate for " + PuzzleScrambler.stateToString(state));
+		}
+	}
+
+	@Test
+	public void estimateIsAtLeastManhattanDistance()
+	{
+		PatternDatabase pdb = PatternDatabase.forShape(3, 4);
+		for (int i = 0; i < 1000; i++)
+		{
+			int[][] state = PuzzleScrambler.generateScrambleState(SEED, i, 3, 4);
+			assertTrue(pdb.estimate(state) >= manhattan(state), "Estimate below the Manhattan distance for " + PuzzleScrambler.stateToString(state));
+		}
+	}
+
+	@Test
+	public void solverEstimateUsesDatabase()
+	{
+		for (int i = 0; i < 100; i++)
+		{
+			int[][] state = PuzzleScrambler.generateScrambleState(SEED, i, 3, 3);
+			assertEquals(PatternDatabase.forShape(3, 3).estimate(state), PuzzleSolver.estimate(state));
+		}
+	}
+
+	@Test
+	public void noDatabaseForLargePuzzles()
+	{
+		assertNull(PatternDatabase.forShape(5, 5));
+	}
+
+	private static int manhattan(int[][] state)
+	{
+		int numRows = state.length;
+		int numCols = state[0].length;
+		int sum = 0;
+		for (int r = 0; r < numRows; r++)
+		{
+			for (int c = 0; c < numCols; c++)
+			{
+				if (state[r][c] == Puzzle.BLANK_TILE)
+					continue;
+				int[] home = PuzzleSolver.getHomeCell(state[r][c], numRows, numCols);
+				sum += Math.abs(r - home[0]) + Math.abs(c - home[1]);
+			}
+		}
+		return sum;
+	}
+}
@@ -0,0 +1,50 @@
+package fifteenpuzzle;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import javax.swing.JPanel;
+import javax.swing.SwingUtilities;
+
+import org.junit.jupiter.api.Test;
+
+public class PuzzleTest
+{
+	private Puzzle puzzle;
+	private CompletableFuture<Void> done;
+
+	@Test
+	public void stateAppliedAfterQueuedMoves() throws Exception
+	{
+		int[][] solved = PuzzleSolver.solvedState(3, 3);
+
+		SwingUtilities.invokeAndWait(() ->
+		{
+			JPanel board = new JPanel(null);
+			board.setSize(300, 300);
+			puzzle = new Puzzle(3, 3, board);
+
+			// The slides are still queued when the state is applied
+			assertTrue(puzzle.move(Move.DOWN));
+			assertTrue(puzzle.move(Move.RIGHT));
+			assertFalse(puzzle.isSolved());
+			done = puzzle.applyStateInstant(solved);
+		});
+		done.get(10, TimeUnit.SECONDS);
+
+		SwingUtilities.invokeAndWait(() ->
+		{
+			assertTrue(puzzle.isScrambleComplete());
+			assertTrue(puzzle.isSolved());
+			assertArrayEquals(solved, puzzle.currentState());
+			assertEquals(2, puzzle.getBlankRow());
+			assertEquals(2, puzzle.getBlankCol());
+			assertTrue(puzzle.move(Move.DOWN));
+		});
+	}
+}
@@ -0,0 +1,99 @@
+package fifteenpuzzle;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+public class ScrambleStoreTest
+{
+	@Test
+	public void recordRoundTrip()
+	{
+		for (int[] shape : new int[][] { { 2, 2 }, { 3, 3 }, { 4, 4 }, { 3, 5 }, { 10, 10 } })
+		{
+			Scramble scramble = PuzzleScrambler.generateScramble(shape[0], shape[1], PuzzleScrambler.NO_LENGTH_LIMIT);
+			scramble.setId(1234567890123L);
+
+			Scramble read = readRecord(ScrambleStore.scrambleRecord(scramble));
+			assertEquals(scramble.getId(), read.getId());
+			assertArrayEquals(scramble.getState(), read.getState());
+			assertEquals(scramble.getSequence(), read.getSequence());
+			assertEquals(scramble.getOptimalLength(), read.getOptimalLength());
+		}
+	}
+
+	@Test
+	public void recordWithoutSequence()
+	{
+		int[][] state = PuzzleScrambler.generateScrambleState(33, 0, 4, 4);
+		Scramble scramble = new Scramble(state, null, 52);
+		scramble.setId(7);
+
+		Scramble read = readRecord(ScrambleStore.scrambleRecord(scramble));
+		assertEquals(7L, read.getId());
+		assertArrayEquals(state, read.getState());
+		assertNull(read.getSequence());
+		assertEquals(52, read.getOptimalLength());
+	}
+
+	@Test
+	public void recordIsPacked()
+	{
+		// 16 tiles at 4 bits each and 100 moves at 2 bits each, after a 17-byte header
+		MoveSequence sequence = new MoveSequence();
+		for (int i = 0; i < 100; i++)
+			sequence.add(i % 2 == 0 ? Move.LEFT : Move.RIGHT);
+		Scramble scramble = new Scramble(PuzzleSolver.solvedState(4, 4), sequence);
+
+		assertEquals(17 + 8 + 25, ScrambleStore.scrambleRecord(scramble).length);
+	}
+
+	@Test
+	public void rejectsTruncatedRecord()
+	{
+		Scramble scramble = PuzzleScrambler.generateScramble(4, 4, PuzzleScrambler.NO_LENGTH_LIMIT);
+		byte[] record = ScrambleStore.scrambleRecord(scramble);
+
+		assertThrows(BufferUnderflowException.class, () -> readRecord(Arrays.copyOf(record, record.length - 1)));
+	}
+
+	@Test
+	public void rejectsInvalidShape()
+	{
+		byte[] record = ScrambleStore.scrambleRecord(new Scramble(PuzzleSolver.solvedState(3, 3), null));
+		record[1 + Long.BYTES] = 1; // Number of rows
+
+		assertThrows(IllegalArgumentException.class, () -> readRecord(record));
+	}
+
+	@Test
+	public void rejectsRepeatedTile()
+	{
+		int[][] state = PuzzleSolver.solvedState(3, 3);
+		state[0][1] = 1;
+		byte[] record = ScrambleStore.scrambleRecord(new Scramble(state, null));
+
+		assertThrows(IllegalArgumentException.class, () -> readRecord(record));
+	}
+
+	/**
+	 * Reads a record written by ScrambleStore.scrambleRecord, checking that all of
+	 * it is used
+	 */
+	private static Scramble readRecord(byte[] record)
+	{
+		ByteBuffer in = ByteBuffer.wrap(record);
+		assertEquals(1, in.get()); // Scramble record
+		Scramble scramble = ScrambleStore.readScramble(in);
+		assertFalse(in.hasRemaining());
+		return scramble;
+	}
+}
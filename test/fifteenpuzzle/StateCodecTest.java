@@ -0,0 +1,133 @@
+package fifteenpuzzle;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+
+public class StateCodecTest
+{
+	@Test
+	public void writeThenParse() throws IOException
+	{
+		SplittableRandom rgen = new SplittableRandom(40);
+		int[][] shapes = { { 2, 2 }, { 3, 3 }, { 4, 4 }, { 3, 7 }, { 10, 10 }, { 20, 20 } };
+		for (int[] shape : shapes)
+		{
+			StateCodec codec = new StateCodec(shape[0], shape[1]);
+			int[] cells = new int[shape[0] * shape[1]];
+			for (int i = 0; i < 20; i++)
+			{
+				int[][] state = PuzzleScrambler.generateScrambleState(rgen, shape[0], shape[1]);
+				int[] flat = flatten(state);
+
+				StringBuilder text = new StringBuilder();
+				StateCodec.write(state, text);
+				assertTrue(codec.parse(text, cells), text.toString());
+				assertArrayEquals(flat, cells);
+
+				StringWriter writer = new StringWriter();
+				StateCodec.write(flat, shape[1], writer);
+				assertEquals(text.toString(), writer.toString());
+				assertEquals(text.toString(), PuzzleScrambler.stateToString(state));
+				assertArrayEquals(state, PuzzleScrambler.stringToState(text.toString(), shape[0], shape[1]));
+			}
+		}
+	}
+
+	@Test
+	public void acceptsBaselineVariants()
+	{
+		int[] expected = { 1, 2, 3, 4, 5, 6, 7, 8, 0 };
+		String[] valid = {
+			"1 2 3 / 4 5 6 / 7 8 0",
+			"1 2 3/4 5 6/7 8 0",
+			"  1 2 3 \t/\t4 5 6/ 7 8 0  ",
+			"1 2 3\n4 5 6\n7 8 0",
+			"1 2 3 / 4 5 6 / 7 8 0 /",
+			"1 2 3 / 4 5 6 / 7 8 0//",
+		};
+
+		StateCodec codec = new StateCodec(3, 3);
+		int[] cells = new int[9];
+		for (String text : valid)
+		{
+			assertTrue(codec.parse(text, cells), "Should accept \"" + text + "\"");
+			assertArrayEquals(expected, cells);
+		}
+	}
+
+	@Test
+	public void rejectsInvalidStates()
+	{
+		String[] invalid = {
+			"",
+			"01 2 3 / 4 5 6 / 7 8 0",
+			"1  2 3 / 4 5 6 / 7 8 0",
+			"1\t2 3 / 4 5 6 / 7 8 0",
+			"1 2 3 / 4 5 6 / 7 8 8",
+			"1 2 3 / 4 5 6 / 7 8 9",
+			"1 2 3 / 4 5 6 / 7 8",
+			"1 2 3 / 4 5 6 / 7 8 0 / 1",
+			"1 2 3 / / 4 5 6 / 7 8 0",
+			"1 2 3 / 4 5 6 / 7 8 0 / / ",
+			"/ 1 2 3 / 4 5 6 / 7 8 0",
+			"1 2 3 / 4 5 6 / 7 8 -0",
+			"1 2 3 / 4 5 6 / 7 8 0x",
+			"1 2 / 3 89",
+			"1 2 3 4 / 5 6 / 7 8 0",
+		};
+
+		StateCodec codec = new StateCodec(3, 3);
+		int[] cells = new int[9];
+		for (String text : invalid)
+		{
+			assertFalse(codec.parse(text, cells), "Should reject \"" + text + "\"");
+			assertNull(PuzzleScrambler.stringToState(text, 3, 3), "Should reject \"" + text + "\"");
+		}
+	}
+
+	@Test
+	public void readSkipsEmptyLinesAndRecoversFromErrors() throws IOException
+	{
+		String file = "1 2 / 3 0\n\n   \n2 1 / 3 0\n1 1 / 3 0 and more\n0 1 / 2 3";
+		StateCodec codec = new StateCodec(2, 2);
+		StringReader in = new StringReader(file);
+		int[] cells = new int[4];
+
+		assertTrue(codec.read(in, cells));
+		assertArrayEquals(new int[] { 1, 2, 3, 0 }, cells);
+		assertEquals(1, codec.getLineNumber());
+
+		assertTrue(codec.read(in, cells));
+		assertArrayEquals(new int[] { 2, 1, 3, 0 }, cells);
+		assertEquals(4, codec.getLineNumber());
+
+		assertThrows(IOException.class, () -> codec.read(in, cells));
+		assertEquals(5, codec.getLineNumber());
+
+		assertTrue(codec.read(in, cells));
+		assertArrayEquals(new int[] { 0, 1, 2, 3 }, cells);
+		assertEquals(6, codec.getLineNumber());
+
+		assertFalse(codec.read(in, cells));
+	}
+
+	private static int[] flatten(int[][] state)
+	{
+		int numCols = state[0].length;
+		int[] cells = new int[state.length * numCols];
+		for (int r = 0; r < state.length; r++)
+			System.arraycopy(state[r], 0, cells, r * numCols, numCols);
+		return cells;
+	}
+}
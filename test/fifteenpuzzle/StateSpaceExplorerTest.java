@@ -0,0 +1,75 @@
+package fifteenpuzzle;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+
+public class StateSpaceExplorerTest
+{
+	@Test
+	public void rankAndUnrankAreInverses()
+	{
+		StateSpaceExplorer explorer = new StateSpaceExplorer(3, 4, Integer.MAX_VALUE, 1);
+		SplittableRandom rgen = new SplittableRandom(27);
+		int[] cells = new int[12];
+		for (int i = 0; i < 10000; i++)
+		{
+			long rank = rgen.nextLong(explorer.getNumStates());
+			explorer.unrank(rank, cells);
+			assertEquals(rank, explorer.rank(cells));
+		}
+	}
+
+	@Test
+	public void findsEvery3x3State() throws InterruptedException
+	{
+		StateSpaceExplorer explorer = new StateSpaceExplorer(3, 3, Integer.MAX_VALUE, 2);
+		explorer.exploreInMemory();
+
+		ArrayList<Long> layers = explorer.getLayerSizes();
+		assertEquals(181440L, sum(layers));
+		assertEquals(32, layers.size()); // God's number is 31
+		assertEquals(2L, (long) layers.get(31));
+	}
+
+	@Test
+	public void diskModeMatchesMemoryMode() throws IOException, InterruptedException
+	{
+		StateSpaceExplorer inMemory = new StateSpaceExplorer(2, 4, Integer.MAX_VALUE, 1);
+		inMemory.exploreInMemory();
+
+		File dir = Files.createTempDirectory("layers").toFile();
+		StateSpaceExplorer onDisk = new StateSpaceExplorer(2, 4, Integer.MAX_VALUE, 1);
+		// Small chunks give more runs than can be merged at once
+		onDisk.exploreOnDisk(dir, 8);
+
+		assertEquals(inMemory.getLayerSizes(), onDisk.getLayerSizes());
+		assertEquals(20160L, sum(onDisk.getLayerSizes()));
+		assertArrayEquals(new String[0], dir.list(), "Files left in the work directory");
+		dir.delete();
+	}
+
+	@Test
+	public void stopsAtMaxDepth() throws InterruptedException
+	{
+		StateSpaceExplorer explorer = new StateSpaceExplorer(3, 3, 5, 1);
+		explorer.exploreInMemory();
+		assertEquals(Arrays.asList(1L, 2L, 4L, 8L, 16L, 20L), explorer.getLayerSizes());
+	}
+
+	private static long sum(ArrayList<Long> values)
+	{
+		long sum = 0;
+		for (long value : values)
+			sum += value;
+		return sum;
+	}
+}